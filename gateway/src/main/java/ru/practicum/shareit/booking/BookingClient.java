@@ -3,58 +3,116 @@ package ru.practicum.shareit.booking;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Flux;
 import ru.practicum.shareit.booking.dto.BookingDtoIn;
 import ru.practicum.shareit.booking.dto.BookingSearchState;
 import ru.practicum.shareit.client.BaseClient;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class BookingClient extends BaseClient {
     private static final String API_PREFIX = "/bookings";
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> EVENT_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    // Поток событий проксируется неблокирующим клиентом, чтобы подписка не занимала поток шлюза
+    private final WebClient webClient;
 
     @Autowired
-    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                         WebClient.Builder webClientBuilder) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
                         .requestFactory(HttpComponentsClientHttpRequestFactory::new)
                         .build()
         );
+        this.webClient = webClientBuilder.baseUrl(serverUrl + API_PREFIX).build();
     }
 
     ResponseEntity<Object> add(BookingDtoIn bookingDto, long userId) {
         return super.post("", userId, bookingDto);
     }
 
+    ResponseEntity<Object> addAll(List<BookingDtoIn> bookingDtos, long userId) {
+        return super.post("/batch", userId, bookingDtos);
+    }
+
     ResponseEntity<Object> approve(long bookingId, long userId, boolean approved) {
         Map<String, Object> parameters = Map.of("approved", approved);
         return super.patch("/" + bookingId + "?approved={approved}", userId, parameters, null);
     }
 
+    ResponseEntity<Object> approveAll(List<Long> bookingIds, long userId, boolean approved) {
+        Map<String, Object> parameters = Map.of("approved", approved);
+        return super.patch("/batch?approved={approved}", userId, parameters, bookingIds);
+    }
+
+    Flux<ServerSentEvent<String>> subscribe(long userId, @Nullable Long lastEventId) {
+        return webClient.get()
+                .uri("/events")
+                .accept(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_JSON)
+                .headers(headers -> {
+                    headers.set("X-Sharer-User-Id", String.valueOf(userId));
+                    if (Objects.nonNull(lastEventId)) {
+                        headers.set("Last-Event-ID", String.valueOf(lastEventId));
+                    }
+                })
+                .retrieve()
+                .bodyToFlux(EVENT_TYPE);
+    }
+
     ResponseEntity<Object> findById(long bookingId, long userId) {
         return super.get("/" + bookingId, userId);
     }
 
-    ResponseEntity<Object> findByBooker(long userId, BookingSearchState state, long from, int size) {
-        Map<String, Object> parameters = Map.of(
-                "state", state.toString(),
-                "from", from,
-                "size", size
-        );
-        return super.get("?state={state}&from={from}&size={size}", userId, parameters);
+    ResponseEntity<Object> findBookerSummary(long userId) {
+        return super.get("/summary", userId);
     }
 
-    ResponseEntity<Object> findByOwner(long userId, BookingSearchState state, long from, int size) {
-        Map<String, Object> parameters = Map.of(
-                "state", state.toString(),
-                "from", from,
-                "size", size
-        );
-        return super.get("/owner?state={state}&from={from}&size={size}", userId, parameters);
+    ResponseEntity<StreamingResponseBody> exportByOwner(long userId) {
+        return super.stream("/owner/export", userId);
+    }
+
+    ResponseEntity<Object> findOwnerSummary(long userId) {
+        return super.get("/owner/summary", userId);
+    }
+
+    ResponseEntity<Object> findByBooker(long userId, BookingSearchState state, long from, int size,
+                                        @Nullable String cursor) {
+        return findPage("", userId, state, from, size, cursor);
+    }
+
+    ResponseEntity<Object> findByOwner(long userId, BookingSearchState state, long from, int size,
+                                       @Nullable String cursor) {
+        return findPage("/owner", userId, state, from, size, cursor);
+    }
+
+    private ResponseEntity<Object> findPage(String path, long userId, BookingSearchState state, long from, int size,
+                                            @Nullable String cursor) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("state", state.toString());
+        parameters.put("from", from);
+        parameters.put("size", size);
+        if (Objects.isNull(cursor)) {
+            return super.get(path + "?state={state}&from={from}&size={size}", userId, parameters);
+        }
+        parameters.put("cursor", cursor);
+        return super.get(path + "?state={state}&from={from}&size={size}&cursor={cursor}", userId, parameters);
     }
 }
@@ -3,14 +3,22 @@ package ru.practicum.shareit.booking;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 import ru.practicum.shareit.booking.dto.BookingDtoIn;
 import ru.practicum.shareit.booking.dto.BookingSearchState;
+import ru.practicum.shareit.util.validation.NullableNotBlank;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.util.List;
 
 @RestController
 @RequestMapping(path = "/bookings")
@@ -26,6 +34,13 @@ public class BookingController {
         return bookingClient.add(bookingDto, userId);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<Object> addAll(
+            @RequestBody @NotEmpty @Size(max = 100) List<@NotNull @Valid BookingDtoIn> bookingDtos,
+            @RequestHeader("X-Sharer-User-Id") long userId) {
+        return bookingClient.addAll(bookingDtos, userId);
+    }
+
     @PatchMapping("/{bookingId}")
     public ResponseEntity<Object> approve(@PathVariable long bookingId,
                         @RequestParam boolean approved,
@@ -33,6 +48,35 @@ public class BookingController {
         return bookingClient.approve(bookingId, userId, approved);
     }
 
+    @PatchMapping("/batch")
+    public ResponseEntity<Object> approveAll(@RequestBody @NotEmpty @Size(max = 100) List<@NotNull Long> bookingIds,
+                                             @RequestParam boolean approved,
+                                             @RequestHeader("X-Sharer-User-Id") long userId) {
+        return bookingClient.approveAll(bookingIds, userId, approved);
+    }
+
+    @GetMapping("/summary")
+    public ResponseEntity<Object> findBookerSummary(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return bookingClient.findBookerSummary(userId);
+    }
+
+    @GetMapping("/owner/summary")
+    public ResponseEntity<Object> findOwnerSummary(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return bookingClient.findOwnerSummary(userId);
+    }
+
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportByOwner(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return bookingClient.exportByOwner(userId);
+    }
+
+    @GetMapping("/events")
+    public Flux<ServerSentEvent<String>> subscribe(
+            @RequestHeader("X-Sharer-User-Id") long userId,
+            @RequestHeader(name = "Last-Event-ID", required = false) @PositiveOrZero Long lastEventId) {
+        return bookingClient.subscribe(userId, lastEventId);
+    }
+
     @GetMapping("/{bookingId}")
     public ResponseEntity<Object> findById(@PathVariable long bookingId,
                                   @RequestHeader("X-Sharer-User-Id") long userId) {
@@ -44,8 +88,9 @@ public class BookingController {
             @RequestParam(defaultValue = "ALL") String state,
             @RequestHeader("X-Sharer-User-Id") long userId,
             @RequestParam(defaultValue = "0") @PositiveOrZero Long from,
-            @RequestParam(defaultValue = "10") @Positive Integer size) {
-        return bookingClient.findByBooker(userId, BookingSearchState.of(state), from, size);
+            @RequestParam(defaultValue = "10") @Positive Integer size,
+            @RequestParam(required = false) @NullableNotBlank String cursor) {
+        return bookingClient.findByBooker(userId, BookingSearchState.of(state), from, size, cursor);
     }
 
     @GetMapping("/owner")
@@ -53,7 +98,8 @@ public class BookingController {
             @RequestParam(defaultValue = "ALL") String state,
             @RequestHeader("X-Sharer-User-Id") long userId,
             @RequestParam(defaultValue = "0") @PositiveOrZero Long from,
-            @RequestParam(defaultValue = "10") @Positive Integer size) {
-        return bookingClient.findByOwner(userId, BookingSearchState.of(state), from, size);
+            @RequestParam(defaultValue = "10") @Positive Integer size,
+            @RequestParam(required = false) @NullableNotBlank String cursor) {
+        return bookingClient.findByOwner(userId, BookingSearchState.of(state), from, size, cursor);
     }
 }
@@ -2,6 +2,8 @@ package ru.practicum.shareit.exception;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -9,6 +11,7 @@ import org.springframework.web.bind.MissingRequestHeaderException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import javax.validation.ConstraintViolationException;
 import java.util.Map;
@@ -72,6 +75,15 @@ public class ErrorHandler {
         return result;
     }
 
+    // Ответ сервера с ошибкой при открытии потока событий передается клиенту как есть
+    @ExceptionHandler
+    public ResponseEntity<String> handleWebClientResponseException(WebClientResponseException exception) {
+        log.warn("Server responded with {}: {}", exception.getRawStatusCode(), exception.getResponseBodyAsString());
+        return ResponseEntity.status(exception.getRawStatusCode())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(exception.getResponseBodyAsString());
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public Map<String, String> handleUnexpectedException(Throwable exception) {
@@ -2,21 +2,37 @@ package ru.practicum.shareit.item;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.lang.Nullable;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.item.dto.CommentDtoIn;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemPatchDto;
+import ru.practicum.shareit.item.dto.ItemSort;
 
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class ItemClient extends BaseClient {
     private static final String API_PREFIX = "/items";
 
+    // Тело импорта передается на сервер потоком, без буферизации в памяти gateway
+    private final RestTemplate streamingRest;
+
     public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
         super(
                 builder
@@ -24,27 +40,83 @@ public class ItemClient extends BaseClient {
                         .requestFactory(HttpComponentsClientHttpRequestFactory::new)
                         .build()
         );
+        this.streamingRest = builder
+                .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
+                .requestFactory(ItemClient::streamingRequestFactory)
+                .build();
+    }
+
+    private static ClientHttpRequestFactory streamingRequestFactory() {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
+        requestFactory.setBufferRequestBody(false);
+        return requestFactory;
     }
 
     public ResponseEntity<Object> getById(long itemId, long userId) {
         return super.get("/" + itemId, userId);
     }
 
-    public ResponseEntity<Object> getAll(long userId, long from, int size) {
+    public ResponseEntity<Object> getAll(long userId, ItemSort sort, long from, int size) {
         Map<String, Object> parameters = Map.of(
+                "sort", sort.name(),
                 "from", from,
                 "size", size
         );
-        return super.get("?from={from}&size={size}", userId, parameters);
+        return super.get("?sort={sort}&from={from}&size={size}", userId, parameters);
     }
 
-    public ResponseEntity<Object> search(String text, long from, int size) {
+    public ResponseEntity<Object> search(String text, ItemSort sort, long from, int size) {
         Map<String, Object> parameters = Map.of(
+                "sort", sort.name(),
                 "from", from,
                 "size", size,
                 "text", text
         );
-        return super.get("/search?from={from}&size={size}&text={text}", null, parameters);
+        return super.get("/search?sort={sort}&from={from}&size={size}&text={text}", null, parameters);
+    }
+
+    public ResponseEntity<Object> suggest(String prefix, int size) {
+        Map<String, Object> parameters = Map.of(
+                "prefix", prefix,
+                "size", size
+        );
+        return super.get("/suggest?prefix={prefix}&size={size}", null, parameters);
+    }
+
+    public ResponseEntity<Object> getAvailability(long itemId, LocalDateTime from, LocalDateTime to, long userId) {
+        Map<String, Object> parameters = Map.of(
+                "from", from,
+                "to", to
+        );
+        return super.get("/" + itemId + "/availability?from={from}&to={to}", userId, parameters);
+    }
+
+    public ResponseEntity<Object> getComments(long itemId, long userId, int size, @Nullable String cursor) {
+        if (Objects.isNull(cursor)) {
+            return super.get("/" + itemId + "/comments?size={size}", userId, Map.of("size", size));
+        }
+        Map<String, Object> parameters = Map.of(
+                "size", size,
+                "cursor", cursor
+        );
+        return super.get("/" + itemId + "/comments?size={size}&cursor={cursor}", userId, parameters);
+    }
+
+    public ResponseEntity<Object> importItems(InputStream body, long userId) {
+        try {
+            return streamingRest.execute("/import", HttpMethod.POST, request -> {
+                request.getHeaders().setContentType(MediaType.APPLICATION_NDJSON);
+                request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+                request.getHeaders().set("X-Sharer-User-Id", String.valueOf(userId));
+                StreamUtils.copy(body, request.getBody());
+            }, streamingRest.responseEntityExtractor(Object.class));
+        } catch (HttpStatusCodeException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
+        }
+    }
+
+    public ResponseEntity<StreamingResponseBody> exportItems(long userId) {
+        return super.stream("/export", userId);
     }
 
     public ResponseEntity<Object> add(ItemDto itemDto, long userId) {
@@ -2,16 +2,27 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.exception.CustomValidationException;
 import ru.practicum.shareit.item.dto.CommentDtoIn;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemPatchDto;
+import ru.practicum.shareit.item.dto.ItemSort;
+import ru.practicum.shareit.util.validation.NullableNotBlank;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.Collections;
 
 @RestController
@@ -29,16 +40,47 @@ public class ItemController {
 
     @GetMapping
     public ResponseEntity<Object> getAll(@RequestHeader("X-Sharer-User-Id") long userId,
+                                           @RequestParam(defaultValue = "DEFAULT") String sort,
                                            @RequestParam(defaultValue = "0") @PositiveOrZero Long from,
                                            @RequestParam(defaultValue = "10") @Positive Integer size) {
-        return itemClient.getAll(userId, from, size);
+        return itemClient.getAll(userId, ItemSort.of(sort), from, size);
     }
 
     @GetMapping("/search")
     public ResponseEntity<Object> search(@RequestParam String text,
+                                @RequestParam(defaultValue = "DEFAULT") String sort,
                                 @RequestParam(defaultValue = "0") @PositiveOrZero Long from,
                                 @RequestParam(defaultValue = "10") @Positive Integer size) {
-        return text.isBlank() ? ResponseEntity.ok(Collections.emptyList()) : itemClient.search(text, from, size);
+        ItemSort itemSort = ItemSort.of(sort);
+        return text.isBlank() ?
+                ResponseEntity.ok(Collections.emptyList()) :
+                itemClient.search(text, itemSort, from, size);
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<Object> suggest(@RequestParam @NotBlank @Size(max = 255) String prefix,
+                                          @RequestParam(defaultValue = "10") @Positive @Max(50) Integer size) {
+        return itemClient.suggest(prefix, size);
+    }
+
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<Object> getAvailability(
+            @PathVariable long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestHeader("X-Sharer-User-Id") long userId) {
+        if (!to.isAfter(from)) {
+            throw new CustomValidationException("Availability window end must be after start");
+        }
+        return itemClient.getAvailability(id, from, to, userId);
+    }
+
+    @GetMapping("/{id}/comments")
+    public ResponseEntity<Object> getComments(@PathVariable long id,
+                                              @RequestHeader("X-Sharer-User-Id") long userId,
+                                              @RequestParam(defaultValue = "10") @Positive @Max(100) Integer size,
+                                              @RequestParam(required = false) @NullableNotBlank String cursor) {
+        return itemClient.getComments(id, userId, size, cursor);
     }
 
     @PostMapping
@@ -47,6 +89,18 @@ public class ItemController {
         return itemClient.add(itemDto, userId);
     }
 
+    // NDJSON, по вещи на строку. Строки проверяет сервер и возвращает результат по каждой строке
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Object> importItems(InputStream body,
+                                              @RequestHeader("X-Sharer-User-Id") long userId) {
+        return itemClient.importItems(body, userId);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportItems(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return itemClient.exportItems(userId);
+    }
+
     @PatchMapping("/{id}")
     public ResponseEntity<Object> patch(@PathVariable long id,
                          @RequestBody @Valid ItemPatchDto patchDto,
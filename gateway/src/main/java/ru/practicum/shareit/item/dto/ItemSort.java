@@ -0,0 +1,18 @@
+package ru.practicum.shareit.item.dto;
+
+import ru.practicum.shareit.exception.CustomValidationException;
+
+public enum ItemSort {
+    DEFAULT,
+    COMMENTS,
+    BOOKINGS,
+    ACTIVITY;
+
+    public static ItemSort of(String name) {
+        try {
+            return ItemSort.valueOf(name);
+        } catch (IllegalArgumentException exception) {
+            throw new CustomValidationException("Unknown sort: " + name);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package ru.practicum.shareit.request;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.DefaultUriBuilderFactory;
@@ -10,6 +11,7 @@ import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.request.dto.ItemRequestDtoIn;
 
 import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class ItemRequestClient extends BaseClient {
@@ -28,19 +30,42 @@ public class ItemRequestClient extends BaseClient {
         return super.post("", userId, itemRequestDto);
     }
 
-    public ResponseEntity<Object> findByRequestor(long userId) {
-        return super.get("", userId);
+    public ResponseEntity<Object> findByRequestor(long userId, int size, @Nullable String cursor) {
+        if (Objects.isNull(cursor)) {
+            return super.get("?size={size}", userId, Map.of("size", size));
+        }
+        Map<String, Object> parameters = Map.of(
+                "size", size,
+                "cursor", cursor
+        );
+        return super.get("?size={size}&cursor={cursor}", userId, parameters);
     }
 
-    public ResponseEntity<Object> findByOtherUsers(long userId, long from, int size) {
+    // С cursor страница задается только им, from не передается
+    public ResponseEntity<Object> findByOtherUsers(long userId, long from, int size, @Nullable String cursor) {
+        if (Objects.isNull(cursor)) {
+            Map<String, Object> parameters = Map.of(
+                    "from", from,
+                    "size", size
+            );
+            return super.get("/all?from={from}&size={size}", userId, parameters);
+        }
         Map<String, Object> parameters = Map.of(
-                "from", from,
-                "size", size
+                "size", size,
+                "cursor", cursor
         );
-        return super.get("/all?from={from}&size={size}", userId, parameters);
+        return super.get("/all?size={size}&cursor={cursor}", userId, parameters);
     }
 
     public ResponseEntity<Object> findById(long requestId, long userId) {
         return super.get("/" + requestId, userId);
     }
+
+    public ResponseEntity<Object> findSuggestions(long requestId, long userId, long from, int size) {
+        Map<String, Object> parameters = Map.of(
+                "from", from,
+                "size", size
+        );
+        return super.get("/" + requestId + "/suggestions?from={from}&size={size}", userId, parameters);
+    }
 }
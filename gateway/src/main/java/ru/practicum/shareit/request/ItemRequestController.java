@@ -6,8 +6,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.request.dto.ItemRequestDtoIn;
+import ru.practicum.shareit.util.validation.NullableNotBlank;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 
@@ -26,16 +28,19 @@ public class ItemRequestController {
     }
 
     @GetMapping
-    public ResponseEntity<Object> findByUser(@RequestHeader("X-Sharer-User-Id") long userId) {
-        return itemRequestClient.findByRequestor(userId);
+    public ResponseEntity<Object> findByUser(@RequestParam(defaultValue = "20") @Positive @Max(100) Integer size,
+                                             @RequestParam(required = false) @NullableNotBlank String cursor,
+                                             @RequestHeader("X-Sharer-User-Id") long userId) {
+        return itemRequestClient.findByRequestor(userId, size, cursor);
     }
 
     @GetMapping("/all")
     public ResponseEntity<Object> findAllByOtherUsers(
             @RequestParam(defaultValue = "0") @PositiveOrZero Long from,
-            @RequestParam(defaultValue = "10") @Positive Integer size,
+            @RequestParam(defaultValue = "10") @Positive @Max(100) Integer size,
+            @RequestParam(required = false) @NullableNotBlank String cursor,
             @RequestHeader("X-Sharer-User-Id") long userId) {
-        return itemRequestClient.findByOtherUsers(userId, from, size);
+        return itemRequestClient.findByOtherUsers(userId, from, size, cursor);
     }
 
     @GetMapping("/{requestId}")
@@ -44,6 +49,14 @@ public class ItemRequestController {
         return itemRequestClient.findById(requestId, userId);
     }
 
+    @GetMapping("/{requestId}/suggestions")
+    public ResponseEntity<Object> findSuggestions(@PathVariable long requestId,
+                                                  @RequestParam(defaultValue = "0") @PositiveOrZero Long from,
+                                                  @RequestParam(defaultValue = "10") @Positive @Max(100) Integer size,
+                                                  @RequestHeader("X-Sharer-User-Id") long userId) {
+        return itemRequestClient.findSuggestions(requestId, userId, from, size);
+    }
+
 
 
 
@@ -2,18 +2,27 @@ package ru.practicum.shareit.booking.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingBatchDtoOut;
 import ru.practicum.shareit.booking.dto.BookingDtoIn;
 import ru.practicum.shareit.booking.dto.BookingDtoOut;
 import ru.practicum.shareit.booking.dto.BookingSearchState;
+import ru.practicum.shareit.booking.dto.BookingSummaryDtoOut;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.util.pagination.SeekCursor;
 
 import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequestMapping(path = "/bookings")
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class BookingController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     private final BookingService bookingService;
 
@@ -23,6 +32,12 @@ public class BookingController {
         return bookingService.add(bookingDto, userId);
     }
 
+    @PostMapping("/batch")
+    public List<BookingBatchDtoOut> addAll(@RequestBody List<BookingDtoIn> bookingDtos,
+                                           @RequestHeader("X-Sharer-User-Id") long userId) {
+        return bookingService.addAll(bookingDtos, userId);
+    }
+
     @PatchMapping("/{bookingId}")
     public BookingDtoOut approve(@PathVariable long bookingId,
                         @RequestParam boolean approved,
@@ -30,6 +45,38 @@ public class BookingController {
         return bookingService.approve(bookingId, userId, approved);
     }
 
+    @PatchMapping("/batch")
+    public List<BookingDtoOut> approveAll(@RequestBody List<Long> bookingIds,
+                                          @RequestParam boolean approved,
+                                          @RequestHeader("X-Sharer-User-Id") long userId) {
+        return bookingService.approveAll(bookingIds, userId, approved);
+    }
+
+    @GetMapping("/summary")
+    public BookingSummaryDtoOut findBookerSummary(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return bookingService.findBookerSummary(userId);
+    }
+
+    @GetMapping("/owner/summary")
+    public BookingSummaryDtoOut findOwnerSummary(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return bookingService.findOwnerSummary(userId);
+    }
+
+    // NDJSON по бронированию на строку, тело пишется после возврата из метода
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportByOwner(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(bookingService.exportByOwner(userId));
+    }
+
+    // Без produces, чтобы ошибки (например, неизвестный пользователь) возвращались обычным JSON
+    @GetMapping("/events")
+    public SseEmitter subscribe(@RequestHeader("X-Sharer-User-Id") long userId,
+                                @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        return bookingService.subscribe(userId, lastEventId);
+    }
+
     @GetMapping("/{bookingId}")
     public BookingDtoOut findById(@PathVariable long bookingId,
                                   @RequestHeader("X-Sharer-User-Id") long userId) {
@@ -37,20 +84,41 @@ public class BookingController {
     }
 
     @GetMapping
-    public List<BookingDtoOut> findByBooker(
+    public ResponseEntity<List<BookingDtoOut>> findByBooker(
             @RequestParam String state,
             @RequestHeader("X-Sharer-User-Id") long userId,
-            @RequestParam Long from,
-            @RequestParam Integer size) {
-        return bookingService.findByBooker(userId, BookingSearchState.of(state), from, size);
+            @RequestParam(defaultValue = "0") Long from,
+            @RequestParam Integer size,
+            @RequestParam(required = false) String cursor) {
+        BookingSearchState searchState = BookingSearchState.of(state);
+        List<BookingDtoOut> bookings = Objects.isNull(cursor) ?
+                bookingService.findByBooker(userId, searchState, from, size) :
+                bookingService.findByBooker(userId, searchState, SeekCursor.decode(cursor), size);
+        return withNextCursor(bookings, size);
     }
 
     @GetMapping("/owner")
-    public List<BookingDtoOut> findByOwner(
+    public ResponseEntity<List<BookingDtoOut>> findByOwner(
             @RequestParam String state,
             @RequestHeader("X-Sharer-User-Id") long userId,
-            @RequestParam Long from,
-            @RequestParam Integer size) {
-        return bookingService.findByOwner(userId, BookingSearchState.of(state), from, size);
+            @RequestParam(defaultValue = "0") Long from,
+            @RequestParam Integer size,
+            @RequestParam(required = false) String cursor) {
+        BookingSearchState searchState = BookingSearchState.of(state);
+        List<BookingDtoOut> bookings = Objects.isNull(cursor) ?
+                bookingService.findByOwner(userId, searchState, from, size) :
+                bookingService.findByOwner(userId, searchState, SeekCursor.decode(cursor), size);
+        return withNextCursor(bookings, size);
+    }
+
+    // Курсор следующей страницы отдается заголовком, чтобы не менять формат тела ответа для старых клиентов
+    private static ResponseEntity<List<BookingDtoOut>> withNextCursor(List<BookingDtoOut> bookings, int size) {
+        if (bookings.size() < size) {
+            return ResponseEntity.ok(bookings);
+        }
+        BookingDtoOut last = bookings.get(bookings.size() - 1);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, SeekCursor.of(last.getStart(), last.getId()).encode())
+                .body(bookings);
     }
 }
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.Value;
+
+// Результат создания одного бронирования из пакета: либо booking, либо error
+@Value
+public class BookingBatchDtoOut {
+
+    Integer index;
+
+    BookingDtoOut booking;
+
+    String error;
+}
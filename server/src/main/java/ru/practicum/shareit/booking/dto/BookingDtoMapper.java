@@ -3,6 +3,8 @@ package ru.practicum.shareit.booking.dto;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingRecord;
+import ru.practicum.shareit.booking.storage.BookingRow;
 import ru.practicum.shareit.item.dto.ItemDtoMapper;
 import ru.practicum.shareit.user.dto.UserDtoMapper;
 
@@ -12,14 +14,27 @@ import java.util.List;
         uses = {UserDtoMapper.class, ItemDtoMapper.class})
 public interface BookingDtoMapper {
 
-    BookingDtoOut toDto(Booking booking);
+    BookingDtoOut toDto(BookingRecord booking);
 
     List<BookingDtoOut> toDto(List<Booking> bookings);
 
+    @Mapping(target = "item.id", source = "itemId")
+    @Mapping(target = "item.name", source = "itemName")
+    @Mapping(target = "item.description", source = "itemDescription")
+    @Mapping(target = "item.available", source = "itemAvailable")
+    @Mapping(target = "item.requestId", source = "itemRequestId")
+    @Mapping(target = "booker.id", source = "bookerId")
+    @Mapping(target = "booker.name", source = "bookerName")
+    @Mapping(target = "booker.email", source = "bookerEmail")
+    BookingDtoOut toDto(BookingRow row);
+
+    List<BookingDtoOut> rowsToDto(List<BookingRow> rows);
+
     @Mapping(target = "status", constant = "WAITING")
     @Mapping(target = "item", ignore = true)
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "booker", ignore = true)
+    @Mapping(target = "created", ignore = true)
     Booking fromDto(BookingDtoIn dto);
 
 }
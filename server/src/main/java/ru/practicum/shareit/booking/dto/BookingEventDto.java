@@ -0,0 +1,33 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.Value;
+import ru.practicum.shareit.booking.model.BookingEventType;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.time.LocalDateTime;
+
+@Value
+public class BookingEventDto {
+
+    Long id;
+
+    BookingEventType type;
+
+    Long bookingId;
+
+    Long itemId;
+
+    Long bookerId;
+
+    Long ownerId;
+
+    LocalDateTime start;
+
+    LocalDateTime end;
+
+    BookingStatus status;
+
+    LocalDateTime created;
+
+    Long dispatchSeq;
+}
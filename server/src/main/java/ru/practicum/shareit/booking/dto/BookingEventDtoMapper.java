@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking.dto;
+
+import org.mapstruct.Mapper;
+import ru.practicum.shareit.booking.model.BookingEvent;
+
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface BookingEventDtoMapper {
+
+    BookingEventDto toDto(BookingEvent event);
+
+    List<BookingEventDto> toDto(List<BookingEvent> events);
+}
@@ -8,7 +8,8 @@ public enum BookingSearchState {
     PAST,
     FUTURE,
     WAITING,
-    REJECTED;
+    REJECTED,
+    EXPIRED;
 
     public static BookingSearchState of(String name) {
         try {
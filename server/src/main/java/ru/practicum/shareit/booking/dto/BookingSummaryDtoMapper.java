@@ -0,0 +1,18 @@
+package ru.practicum.shareit.booking.dto;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import ru.practicum.shareit.booking.model.BookingCounter;
+
+@Mapper(componentModel = "spring")
+public interface BookingSummaryDtoMapper {
+
+    @Mapping(target = "all", source = "allCount")
+    @Mapping(target = "current", source = "currentCount")
+    @Mapping(target = "past", source = "pastCount")
+    @Mapping(target = "future", source = "futureCount")
+    @Mapping(target = "waiting", source = "waitingCount")
+    @Mapping(target = "rejected", source = "rejectedCount")
+    @Mapping(target = "expired", source = "expiredCount")
+    BookingSummaryDtoOut toDto(BookingCounter counter);
+}
@@ -0,0 +1,22 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.Value;
+
+// Количество бронирований по каждому состоянию BookingSearchState
+@Value
+public class BookingSummaryDtoOut {
+
+    Long all;
+
+    Long current;
+
+    Long past;
+
+    Long future;
+
+    Long waiting;
+
+    Long rejected;
+
+    Long expired;
+}
@@ -0,0 +1,10 @@
+package ru.practicum.shareit.booking.model;
+
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+// Завершенное бронирование, перенесенное BookingArchiver из bookings в bookings_archive
+@Entity
+@Table(name = "bookings_archive")
+public class ArchivedBooking extends BookingRecord {
+}
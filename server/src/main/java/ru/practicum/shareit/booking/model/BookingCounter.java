@@ -0,0 +1,62 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/*
+ * Количество бронирований пользователя в роли бронирующего или владельца по состояниям BookingSearchState.
+ * Временные состояния (CURRENT, PAST, FUTURE) соответствуют моменту max(created, watermark), где watermark -
+ * граница, до которой отработал BookingCounterReconciler.
+ */
+@Entity
+@Table(name = "booking_counters")
+@IdClass(BookingCounter.Key.class)
+@Getter
+@Setter
+@ToString
+public class BookingCounter {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Enumerated(value = EnumType.STRING)
+    private BookingCounterRole role;
+
+    @Column(name = "all_count")
+    private long allCount;
+
+    @Column(name = "current_count")
+    private long currentCount;
+
+    @Column(name = "past_count")
+    private long pastCount;
+
+    @Column(name = "future_count")
+    private long futureCount;
+
+    @Column(name = "waiting_count")
+    private long waitingCount;
+
+    @Column(name = "rejected_count")
+    private long rejectedCount;
+
+    @Column(name = "expired_count")
+    private long expiredCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+
+        private BookingCounterRole role;
+    }
+}
@@ -0,0 +1,72 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/*
+ * Запись outbox о событии жизненного цикла бронирования. Сохраняется в одной транзакции с изменением
+ * бронирования и содержит снимок его полей, поэтому получателям не нужно читать bookings.
+ * dispatchedAt заполняется после доставки во все BookingEventSink. dispatchSeq - номер события в порядке
+ * отправки: диспетчеры отправляют пачки по очереди, поэтому номера растут в порядке фиксации, в отличие от id.
+ */
+@Entity
+@Table(name = "booking_events")
+@Getter
+@Setter
+@ToString
+public class BookingEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_events_seq")
+    @SequenceGenerator(name = "booking_events_seq", sequenceName = "booking_events_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(value = EnumType.STRING)
+    private BookingEventType type;
+
+    @Column(name = "booking_id")
+    private Long bookingId;
+
+    @Column(name = "item_id")
+    private Long itemId;
+
+    @Column(name = "booker_id")
+    private Long bookerId;
+
+    @Column(name = "owner_id")
+    private Long ownerId;
+
+    @Column(name = "start_time")
+    private LocalDateTime start;
+
+    @Column(name = "end_time")
+    private LocalDateTime end;
+
+    @Enumerated(value = EnumType.STRING)
+    private BookingStatus status;
+
+    private LocalDateTime created;
+
+    @Column(name = "dispatched_at")
+    private LocalDateTime dispatchedAt;
+
+    @Column(name = "dispatch_seq")
+    private Long dispatchSeq;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BookingEvent event = (BookingEvent) o;
+        return Objects.nonNull(id) && id.equals(event.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+}
@@ -0,0 +1,39 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class BookingArchiveJob {
+    private final BookingArchiver bookingArchiver;
+
+    @Value("${shareit.booking-archive.retention-days:90}")
+    private long retentionDays;
+
+    @Value("${shareit.booking-archive.batch-size:500}")
+    private int batchSize;
+
+    // Пачки переносятся в отдельных транзакциях, чтобы не держать долгих блокировок на bookings
+    @Scheduled(initialDelayString = "${shareit.booking-archive.delay-ms:3600000}",
+            fixedDelayString = "${shareit.booking-archive.delay-ms:3600000}")
+    public void archive() {
+        LocalDateTime maxEnd = LocalDateTime.now().minusDays(retentionDays);
+        int total = 0;
+        int moved;
+        do {
+            moved = bookingArchiver.moveBatch(maxEnd, batchSize);
+            total += moved;
+        } while (moved == batchSize);
+        if (total > 0) {
+            log.info("Archived {} bookings with end before {}", total, maxEnd);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.storage.ArchivedBookingRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/*
+ * Переносит закончившиеся бронирования из bookings в bookings_archive. Переносятся только APPROVED и CANCELED:
+ * списки WAITING, REJECTED и EXPIRED читают только оперативную таблицу, поэтому такие бронирования остаются в ней.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class BookingArchiver {
+    private static final List<BookingStatus> ARCHIVED_STATUSES = List.of(BookingStatus.APPROVED,
+            BookingStatus.CANCELED);
+
+    private final ArchivedBookingRepository archivedBookingRepository;
+
+    // Одна пачка в одной транзакции, возвращает количество перенесенных бронирований
+    @Transactional
+    public int moveBatch(LocalDateTime maxEnd, int batchSize) {
+        List<Long> ids = archivedBookingRepository.findIdsToArchive(maxEnd, ARCHIVED_STATUSES,
+                PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        archivedBookingRepository.copyFromBookings(ids);
+        int moved = archivedBookingRepository.deleteFromBookings(ids);
+        log.debug("Archive {} bookings with end before {}", moved, maxEnd);
+        return moved;
+    }
+}
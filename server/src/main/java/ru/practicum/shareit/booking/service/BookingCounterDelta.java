@@ -0,0 +1,69 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.Getter;
+import ru.practicum.shareit.booking.dto.BookingSearchState;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.time.LocalDateTime;
+
+// Накопленное изменение счетчиков одного пользователя в одной роли
+@Getter
+class BookingCounterDelta {
+    private long all;
+    private long current;
+    private long past;
+    private long future;
+    private long waiting;
+    private long rejected;
+    private long expired;
+
+    static BookingSearchState timeState(LocalDateTime start, LocalDateTime end, LocalDateTime at) {
+        if (start.isAfter(at)) {
+            return BookingSearchState.FUTURE;
+        }
+        if (end.isAfter(at)) {
+            return BookingSearchState.CURRENT;
+        }
+        return BookingSearchState.PAST;
+    }
+
+    // Учитывает (sign = 1) или исключает (sign = -1) бронирование целиком
+    BookingCounterDelta addBooking(BookingSearchState timeState, BookingStatus status, int sign) {
+        all += sign;
+        addState(timeState, sign);
+        return addStatus(status, sign);
+    }
+
+    BookingCounterDelta addStatus(BookingStatus status, int sign) {
+        if (status == BookingStatus.WAITING) {
+            waiting += sign;
+        } else if (status == BookingStatus.REJECTED) {
+            rejected += sign;
+        } else if (status == BookingStatus.EXPIRED) {
+            expired += sign;
+        }
+        return this;
+    }
+
+    BookingCounterDelta addState(BookingSearchState state, int sign) {
+        switch (state) {
+            case CURRENT:
+                current += sign;
+                break;
+            case PAST:
+                past += sign;
+                break;
+            case FUTURE:
+                future += sign;
+                break;
+            default:
+                throw new IllegalArgumentException("Not a time state: " + state);
+        }
+        return this;
+    }
+
+    boolean isEmpty() {
+        return all == 0 && current == 0 && past == 0 && future == 0 && waiting == 0 && rejected == 0 &&
+                expired == 0;
+    }
+}
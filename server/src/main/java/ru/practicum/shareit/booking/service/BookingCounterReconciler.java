@@ -0,0 +1,73 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingSearchState;
+import ru.practicum.shareit.booking.model.BookingCounter;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.booking.storage.BookingTimes;
+import ru.practicum.shareit.util.scheduling.JobWatermark;
+import ru.practicum.shareit.util.scheduling.JobWatermarkRepository;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+ * Переносит бронирования между FUTURE, CURRENT и PAST в счетчиках по мере наступления start и end.
+ * Обрабатывает окно (watermark, now - lag]: выбираются только бронирования, у которых start или end попали
+ * в окно. Отставание lag нужно, чтобы транзакции, создавшие бронирования до конца окна, успели завершиться.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class BookingCounterReconciler {
+    private final BookingRepository bookingRepository;
+    private final JobWatermarkRepository jobWatermarkRepository;
+    private final BookingCounterUpdater bookingCounterUpdater;
+
+    @Value("${shareit.booking-counters.reconcile-lag-ms:10000}")
+    private long lagMillis;
+
+    @Scheduled(initialDelayString = "${shareit.booking-counters.reconcile-delay-ms:60000}",
+            fixedDelayString = "${shareit.booking-counters.reconcile-delay-ms:60000}")
+    @Transactional
+    public void reconcile() {
+        LocalDateTime to = LocalDateTime.now().minusNanos(lagMillis * 1_000_000);
+        JobWatermark watermark = jobWatermarkRepository.findByNameForUpdate(BookingCounterUpdater.WATERMARK_NAME)
+                .orElseGet(() -> createWatermark(to));
+        LocalDateTime from = watermark.getWatermark();
+        if (!to.isAfter(from)) {
+            return;
+        }
+        List<BookingTimes> bookings = bookingRepository.findTimesWithStartOrEndBetween(from, to);
+        Map<BookingCounter.Key, BookingCounterDelta> deltas = new HashMap<>();
+        for (BookingTimes booking : bookings) {
+            LocalDateTime countedAt = booking.getCreated().isAfter(from) ? booking.getCreated() : from;
+            BookingSearchState oldState = BookingCounterDelta.timeState(booking.getStart(), booking.getEnd(),
+                    countedAt);
+            BookingSearchState newState = BookingCounterDelta.timeState(booking.getStart(), booking.getEnd(), to);
+            if (oldState != newState) {
+                BookingCounterUpdater.deltasOf(deltas, booking.getBookerId(), booking.getOwnerId())
+                        .forEach(delta -> delta.addState(oldState, -1).addState(newState, 1));
+            }
+        }
+        bookingCounterUpdater.apply(deltas);
+        watermark.setWatermark(to);
+        log.debug("Reconcile booking counters from {} to {}: {} bookings checked", from, to, bookings.size());
+    }
+
+    // Первый запуск начинает с самого раннего бронирования: до него счетчики соответствуют моменту создания
+    private JobWatermark createWatermark(LocalDateTime to) {
+        LocalDateTime minCreated = bookingRepository.findMinCreated();
+        LocalDateTime from = Objects.isNull(minCreated) || minCreated.isAfter(to) ? to : minCreated;
+        return jobWatermarkRepository.save(new JobWatermark(BookingCounterUpdater.WATERMARK_NAME, from));
+    }
+}
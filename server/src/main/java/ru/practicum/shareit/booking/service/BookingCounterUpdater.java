@@ -0,0 +1,113 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingSearchState;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingCounter;
+import ru.practicum.shareit.booking.model.BookingCounterRole;
+import ru.practicum.shareit.booking.model.BookingRecord;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.storage.BookingCounterRepository;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.booking.storage.BookingTimes;
+import ru.practicum.shareit.util.scheduling.JobWatermark;
+import ru.practicum.shareit.util.scheduling.JobWatermarkRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Изменяет счетчики BookingCounter в транзакции, которая меняет бронирования.
+ * Переходы FUTURE -> CURRENT -> PAST со временем учитывает BookingCounterReconciler.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class BookingCounterUpdater {
+    static final String WATERMARK_NAME = "booking_counters";
+
+    private final BookingCounterRepository bookingCounterRepository;
+    private final BookingRepository bookingRepository;
+    private final JobWatermarkRepository jobWatermarkRepository;
+
+    public void createCounters(long userId) {
+        for (BookingCounterRole role : BookingCounterRole.values()) {
+            BookingCounter counter = new BookingCounter();
+            counter.setUserId(userId);
+            counter.setRole(role);
+            bookingCounterRepository.save(counter);
+        }
+    }
+
+    // Бронирование учитывается во временном состоянии на момент создания. Дельты пачки суммируются по пользователям
+    public void onAdded(Collection<Booking> bookings) {
+        Map<BookingCounter.Key, BookingCounterDelta> deltas = new HashMap<>();
+        for (Booking booking : bookings) {
+            BookingSearchState timeState =
+                    BookingCounterDelta.timeState(booking.getStart(), booking.getEnd(), booking.getCreated());
+            deltasOf(deltas, booking.getBooker().getId(), booking.getItem().getOwner().getId())
+                    .forEach(delta -> delta.addBooking(timeState, booking.getStatus(), 1));
+        }
+        apply(deltas);
+    }
+
+    public void onStatusChanged(BookingRecord booking, BookingStatus oldStatus) {
+        onStatusChanged(List.of(booking), oldStatus);
+    }
+
+    // Дельты пачки суммируются по пользователям, поэтому на пользователя и роль приходится один update
+    public void onStatusChanged(Collection<? extends BookingRecord> bookings, BookingStatus oldStatus) {
+        Map<BookingCounter.Key, BookingCounterDelta> deltas = new HashMap<>();
+        for (BookingRecord booking : bookings) {
+            deltasOf(deltas, booking.getBooker().getId(), booking.getItem().getOwner().getId())
+                    .forEach(delta -> delta.addStatus(oldStatus, -1).addStatus(booking.getStatus(), 1));
+        }
+        apply(deltas);
+    }
+
+    // Бронирования пользователя и его вещей удаляются каскадно вместе с ним, их вычитаем у второй стороны
+    public void onUserRemoved(long userId) {
+        LocalDateTime watermark = jobWatermarkRepository.findById(WATERMARK_NAME)
+                .map(JobWatermark::getWatermark)
+                .orElse(LocalDateTime.MIN);
+        Map<BookingCounter.Key, BookingCounterDelta> deltas = new HashMap<>();
+        for (BookingTimes booking : bookingRepository.findTimesByBookerIdOrItemOwnerId(userId)) {
+            LocalDateTime countedAt = booking.getCreated().isAfter(watermark) ? booking.getCreated() : watermark;
+            deltasOf(deltas, booking.getBookerId(), booking.getOwnerId())
+                    .forEach(delta -> delta.addBooking(
+                            BookingCounterDelta.timeState(booking.getStart(), booking.getEnd(), countedAt),
+                            booking.getStatus(), -1));
+        }
+        deltas.keySet().removeIf(key -> key.getUserId() == userId);
+        apply(deltas);
+    }
+
+    void apply(Map<BookingCounter.Key, BookingCounterDelta> deltas) {
+        deltas.forEach((key, delta) -> {
+            if (delta.isEmpty()) {
+                return;
+            }
+            int updated = bookingCounterRepository.increment(key.getUserId(), key.getRole(), delta.getAll(),
+                    delta.getCurrent(), delta.getPast(), delta.getFuture(), delta.getWaiting(), delta.getRejected(),
+                    delta.getExpired());
+            if (updated == 0) {
+                log.warn("Booking counters of user id={} role={} not found", key.getUserId(), key.getRole());
+            }
+        });
+    }
+
+    static List<BookingCounterDelta> deltasOf(Map<BookingCounter.Key, BookingCounterDelta> deltas,
+                                              long bookerId, long ownerId) {
+        return List.of(
+                deltas.computeIfAbsent(new BookingCounter.Key(bookerId, BookingCounterRole.BOOKER),
+                        key -> new BookingCounterDelta()),
+                deltas.computeIfAbsent(new BookingCounter.Key(ownerId, BookingCounterRole.OWNER),
+                        key -> new BookingCounterDelta()));
+    }
+}
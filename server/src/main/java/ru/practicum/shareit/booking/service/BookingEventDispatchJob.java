@@ -0,0 +1,49 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class BookingEventDispatchJob {
+    private final BookingEventDispatcher bookingEventDispatcher;
+
+    @Value("${shareit.booking-events.batch-size:100}")
+    private int batchSize;
+
+    @Value("${shareit.booking-events.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    @Value("${shareit.booking-events.retention-hours:24}")
+    private long retentionHours;
+
+    // Число пачек за запуск ограничено, чтобы при большом отставании не занимать поток планировщика надолго
+    @Scheduled(fixedDelayString = "${shareit.booking-events.dispatch-delay-ms:1000}")
+    public void dispatch() {
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            try {
+                if (bookingEventDispatcher.dispatchBatch(batchSize) < batchSize) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Booking events dispatch failed, will retry: {}", e.getMessage(), e);
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking-events.cleanup-delay-ms:3600000}")
+    public void removeDispatched() {
+        int removed = bookingEventDispatcher.removeDispatched(LocalDateTime.now().minusHours(retentionHours));
+        if (removed > 0) {
+            log.info("Removed {} dispatched booking events", removed);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingEventDto;
+import ru.practicum.shareit.booking.dto.BookingEventDtoMapper;
+import ru.practicum.shareit.booking.model.BookingEvent;
+import ru.practicum.shareit.booking.storage.BookingEventRepository;
+import ru.practicum.shareit.util.scheduling.JobWatermark;
+import ru.practicum.shareit.util.scheduling.JobWatermarkRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class BookingEventDispatcher {
+    static final String WATERMARK_NAME = "booking_events_dispatch";
+
+    private final BookingEventRepository bookingEventRepository;
+    private final JobWatermarkRepository jobWatermarkRepository;
+    private final BookingEventDtoMapper bookingEventDtoMapper;
+    private final List<BookingEventSink> sinks;
+
+    /*
+     * Доставляет одну пачку неотправленных событий во все получатели и отмечает ее отправленной.
+     * Если получатель выбросил исключение, транзакция откатывается и пачка будет выбрана снова.
+     * Возвращает размер пачки, 0 - если событий нет. Заполненные получатели пропускают пачку.
+     * Блокировка строки watermark выстраивает пачки всех экземпляров в очередь, поэтому номера dispatchSeq
+     * растут в порядке фиксации и читатель по номеру не пропустит пачку, зафиксированную позже следующей.
+     */
+    @Transactional
+    public int dispatchBatch(int batchSize) {
+        List<BookingEventSink> available = new ArrayList<>(sinks.size());
+        int limit = batchSize;
+        for (BookingEventSink sink : sinks) {
+            int capacity = sink.remainingCapacity();
+            if (capacity > 0) {
+                available.add(sink);
+                limit = Math.min(limit, capacity);
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        JobWatermark watermark = jobWatermarkRepository.findByNameForUpdate(WATERMARK_NAME)
+                .orElseGet(() -> jobWatermarkRepository.save(new JobWatermark(WATERMARK_NAME, now)));
+        List<BookingEvent> events = bookingEventRepository.findUndispatched(PageRequest.of(0, limit));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        Long maxDispatchSeq = bookingEventRepository.findMaxDispatchSeq();
+        long dispatchSeq = Objects.isNull(maxDispatchSeq) ? 0 : maxDispatchSeq;
+        for (BookingEvent event : events) {
+            event.setDispatchedAt(now);
+            event.setDispatchSeq(++dispatchSeq);
+        }
+        List<BookingEventDto> dtos = bookingEventDtoMapper.toDto(events);
+        if (available.size() < sinks.size()) {
+            log.warn("{} of {} booking event sinks are full and skip {} events",
+                    sinks.size() - available.size(), sinks.size(), dtos.size());
+        }
+        available.forEach(sink -> sink.accept(dtos));
+        watermark.setWatermark(now);
+        log.debug("Dispatch {} booking events", events.size());
+        return events.size();
+    }
+
+    @Transactional
+    public int removeDispatched(LocalDateTime maxDispatchedAt) {
+        return bookingEventRepository.deleteByDispatchedAtBefore(maxDispatchedAt);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.booking.service;
+
+import ru.practicum.shareit.booking.dto.BookingEventDto;
+
+import java.util.List;
+
+/*
+ * Получатель отправленных событий бронирований на каждом экземпляре сервиса. В отличие от BookingEventSink,
+ * который получает пачку на одном экземпляре, вызывается из BookingEventStream.poll везде, поэтому подходит для
+ * сброса локальных индексов и кэшей после изменений на других экземплярах. События приходят в порядке
+ * dispatchSeq с задержкой диспетчера и опроса, повторно не доставляются.
+ */
+public interface BookingEventListener {
+
+    void onDispatched(List<BookingEventDto> events);
+}
@@ -0,0 +1,32 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.model.BookingEvent;
+import ru.practicum.shareit.booking.model.BookingEventType;
+import ru.practicum.shareit.booking.model.BookingRecord;
+import ru.practicum.shareit.booking.storage.BookingEventRepository;
+
+import java.time.LocalDateTime;
+
+// Пишет событие в outbox в текущей транзакции, доставкой занимается BookingEventDispatcher
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class BookingEventRecorder {
+    private final BookingEventRepository bookingEventRepository;
+
+    public void record(BookingRecord booking, BookingEventType type) {
+        BookingEvent event = new BookingEvent();
+        event.setType(type);
+        event.setBookingId(booking.getId());
+        event.setItemId(booking.getItem().getId());
+        event.setBookerId(booking.getBooker().getId());
+        event.setOwnerId(booking.getItem().getOwner().getId());
+        event.setStart(booking.getStart());
+        event.setEnd(booking.getEnd());
+        event.setStatus(booking.getStatus());
+        event.setCreated(LocalDateTime.now());
+        bookingEventRepository.save(event);
+    }
+}
@@ -0,0 +1,20 @@
+package ru.practicum.shareit.booking.service;
+
+import ru.practicum.shareit.booking.dto.BookingEventDto;
+
+import java.util.List;
+
+/*
+ * Получатель событий бронирований. Доставка "хотя бы один раз": если accept выбросил исключение,
+ * пачка будет доставлена повторно всем получателям, поэтому обработка должна допускать дубликаты (по id события).
+ */
+public interface BookingEventSink {
+
+    // Сколько событий получатель готов принять сейчас. Диспетчер не выбирает из outbox больше. Заполненный
+    // получатель (0) пропускает пачку и теряет ее, чтобы не останавливать доставку остальным и ленту событий
+    default int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    void accept(List<BookingEventDto> events);
+}
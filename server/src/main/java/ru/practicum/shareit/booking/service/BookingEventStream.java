@@ -0,0 +1,210 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.dto.BookingEventDto;
+import ru.practicum.shareit.booking.dto.BookingEventDtoMapper;
+import ru.practicum.shareit.booking.storage.BookingEventRepository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Predicate;
+
+/*
+ * Подписки на события бронирований (text/event-stream) по пользователю. Каждый экземпляр сервиса сам читает
+ * отправленные события из outbox по номеру dispatchSeq и отправляет их бронирующему и владельцу вещи, поэтому
+ * подписчик получает события независимо от того, какой экземпляр отправил пачку. Номер события служит id в потоке.
+ * SseEmitter работает поверх асинхронного запроса сервлета, поэтому ожидающая подписка не занимает поток.
+ * Ошибка отправки одному подписчику не откатывает пачку: подписчик переподключится с Last-Event-ID.
+ * Прочитанные события также получают локальные BookingEventListener.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class BookingEventStream {
+    private static final String EVENT_NAME = "booking";
+
+    private final BookingEventRepository bookingEventRepository;
+    private final BookingEventDtoMapper bookingEventDtoMapper;
+    private final List<BookingEventListener> listeners;
+    private final Map<Long, Set<Subscriber>> subscribersByUserId = new ConcurrentHashMap<>();
+    private Long position;
+
+    @Value("${shareit.booking-events.stream.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${shareit.booking-events.stream.replay-batch-size:1000}")
+    private int replayBatchSize;
+
+    @Value("${shareit.booking-events.stream.poll-batch-size:1000}")
+    private int pollBatchSize;
+
+    /*
+     * Подписка регистрируется до чтения пропущенных событий: события опроса, пришедшие во время повтора,
+     * откладываются и отправляются после него. Повтор читает пропущенные события пачками до конца, поэтому
+     * подписчик получает все события по возрастанию номера, без пропусков и повторов.
+     */
+    public SseEmitter subscribe(long userId, Long lastDispatchSeq) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, Objects.isNull(lastDispatchSeq) ? 0 : lastDispatchSeq);
+        subscribersByUserId.computeIfAbsent(userId, id -> new CopyOnWriteArraySet<>()).add(subscriber);
+        Runnable remove = () -> unsubscribe(userId, subscriber);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        if (Objects.nonNull(lastDispatchSeq)) {
+            replay(userId, subscriber, lastDispatchSeq);
+        }
+        subscriber.goLive(event -> send(userId, subscriber, event));
+        log.debug("Subscribe user id={} to booking events after dispatch seq={}", userId, lastDispatchSeq);
+        return emitter;
+    }
+
+    // Первый опрос начинает с последнего отправленного события: более ранние подписчик получает по Last-Event-ID
+    @Scheduled(fixedDelayString = "${shareit.booking-events.stream.poll-ms:1000}")
+    public void poll() {
+        if (Objects.isNull(position)) {
+            Long maxDispatchSeq = bookingEventRepository.findMaxDispatchSeq();
+            position = Objects.isNull(maxDispatchSeq) ? 0 : maxDispatchSeq;
+        }
+        List<BookingEventDto> events;
+        do {
+            events = bookingEventDtoMapper.toDto(bookingEventRepository.findDispatchedAfter(position,
+                    PageRequest.of(0, pollBatchSize)));
+            for (BookingEventDto event : events) {
+                sendToUser(event.getBookerId(), event);
+                if (!event.getOwnerId().equals(event.getBookerId())) {
+                    sendToUser(event.getOwnerId(), event);
+                }
+                position = event.getDispatchSeq();
+            }
+            if (!events.isEmpty()) {
+                List<BookingEventDto> dispatched = events;
+                listeners.forEach(listener -> listener.onDispatched(dispatched));
+            }
+        } while (events.size() == pollBatchSize);
+    }
+
+    // Комментарий раз в интервал не дает прокси и балансировщикам закрыть простаивающее соединение
+    @Scheduled(fixedDelayString = "${shareit.booking-events.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        subscribersByUserId.forEach((userId, subscribers) -> subscribers.forEach(subscriber -> {
+            try {
+                subscriber.getEmitter().send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(userId, subscriber);
+            }
+        }));
+    }
+
+    private void replay(long userId, Subscriber subscriber, long lastDispatchSeq) {
+        long after = lastDispatchSeq;
+        List<BookingEventDto> events;
+        do {
+            events = bookingEventDtoMapper.toDto(bookingEventRepository.findDispatchedByUserIdAfter(userId, after,
+                    PageRequest.of(0, replayBatchSize)));
+            for (BookingEventDto event : events) {
+                subscriber.sendReplayed(event, replayed -> send(userId, subscriber, replayed));
+                after = event.getDispatchSeq();
+            }
+        } while (events.size() == replayBatchSize && !subscriber.isClosed());
+    }
+
+    private void sendToUser(long userId, BookingEventDto event) {
+        Set<Subscriber> subscribers = subscribersByUserId.get(userId);
+        if (Objects.isNull(subscribers)) {
+            return;
+        }
+        subscribers.forEach(subscriber -> subscriber.sendLive(event, live -> send(userId, subscriber, live)));
+    }
+
+    private boolean send(long userId, Subscriber subscriber, BookingEventDto event) {
+        try {
+            subscriber.getEmitter().send(SseEmitter.event()
+                    .id(String.valueOf(event.getDispatchSeq()))
+                    .name(EVENT_NAME)
+                    .data(event, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Drop booking events subscriber of user id={}: {}", userId, e.getMessage());
+            unsubscribe(userId, subscriber);
+            return false;
+        }
+    }
+
+    private void unsubscribe(long userId, Subscriber subscriber) {
+        subscriber.close();
+        subscribersByUserId.computeIfPresent(userId, (id, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    /*
+     * Состояние одного подключения. До окончания повтора события опроса копятся в pending. Отправка идет под
+     * монитором подписчика, поэтому повтор и опрос не перемешивают события, а номер последнего отправленного
+     * события отсекает те, что попали и в повтор, и в опрос.
+     */
+    private static class Subscriber {
+        @Getter
+        private final SseEmitter emitter;
+        private final List<BookingEventDto> pending = new ArrayList<>();
+        private long lastSentSeq;
+        private boolean live;
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, long lastSentSeq) {
+            this.emitter = emitter;
+            this.lastSentSeq = lastSentSeq;
+        }
+
+        synchronized void sendReplayed(BookingEventDto event, Predicate<BookingEventDto> sender) {
+            sendIfNew(event, sender);
+        }
+
+        synchronized void sendLive(BookingEventDto event, Predicate<BookingEventDto> sender) {
+            if (live) {
+                sendIfNew(event, sender);
+            } else {
+                pending.add(event);
+            }
+        }
+
+        synchronized void goLive(Predicate<BookingEventDto> sender) {
+            pending.forEach(event -> sendIfNew(event, sender));
+            pending.clear();
+            live = true;
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        void close() {
+            closed = true;
+        }
+
+        private void sendIfNew(BookingEventDto event, Predicate<BookingEventDto> sender) {
+            if (closed || event.getDispatchSeq() <= lastSentSeq) {
+                return;
+            }
+            if (sender.test(event)) {
+                lastSentSeq = event.getDispatchSeq();
+            }
+        }
+    }
+}
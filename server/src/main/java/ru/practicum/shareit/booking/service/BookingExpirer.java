@@ -0,0 +1,57 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingEventType;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.item.service.ItemAvailabilityCache;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/*
+ * Переводит в EXPIRED бронирования, которые так и не были подтверждены или отклонены до начала.
+ * Статус меняется одним update на пачку, счетчики, интервалы вещей и события обновляются так же,
+ * как при отклонении бронирования владельцем.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class BookingExpirer {
+    private final BookingRepository bookingRepository;
+    private final BookingCounterUpdater bookingCounterUpdater;
+    private final BookingEventRecorder bookingEventRecorder;
+    private final ItemAvailabilityCache itemAvailabilityCache;
+
+    // Одна пачка в одной транзакции, возвращает количество бронирований, у которых истек срок подтверждения
+    @Transactional
+    public int expireBatch(LocalDateTime now, int batchSize) {
+        List<Long> ids = bookingRepository.findIdsByStatusAndStartBefore(BookingStatus.WAITING, now,
+                PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        bookingRepository.updateStatusByIdIn(ids, BookingStatus.WAITING, BookingStatus.EXPIRED);
+        List<Booking> bookings = bookingRepository.findAllByIdIn(ids, Sort.by(Sort.Direction.ASC, "id"));
+        bookingCounterUpdater.onStatusChanged(bookings, BookingStatus.WAITING);
+        for (Booking booking : bookings) {
+            itemAvailabilityCache.invalidateAfterCommit(booking.getItem().getId());
+            bookingEventRecorder.record(booking, BookingEventType.EXPIRED);
+        }
+        log.debug("Expire {} waiting bookings with start before {}", bookings.size(), now);
+        return bookings.size();
+    }
+
+    // Начало самого старого бронирования, которое уже должно было истечь, или null
+    @Transactional(readOnly = true)
+    public LocalDateTime findOldestOverdueStart(LocalDateTime now) {
+        return bookingRepository.findMinStartByStatusAndStartBefore(BookingStatus.WAITING, now);
+    }
+}
@@ -0,0 +1,69 @@
+package ru.practicum.shareit.booking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Метрики:
+ * shareit.booking.expiry.processed - количество бронирований, переведенных в EXPIRED;
+ * shareit.booking.expiry.lag - сколько секунд назад должно было истечь самое старое оставшееся WAITING бронирование
+ * (0, если таких нет), измеряется в конце каждого запуска.
+ */
+@Component
+@Slf4j
+public class BookingExpiryJob {
+    private final BookingExpirer bookingExpirer;
+    private final Counter processed;
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    @Value("${shareit.booking-expiry.batch-size:500}")
+    private int batchSize;
+
+    @Value("${shareit.booking-expiry.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Autowired
+    public BookingExpiryJob(BookingExpirer bookingExpirer, MeterRegistry meterRegistry) {
+        this.bookingExpirer = bookingExpirer;
+        this.processed = Counter.builder("shareit.booking.expiry.processed")
+                .description("Waiting bookings moved to EXPIRED")
+                .register(meterRegistry);
+        Gauge.builder("shareit.booking.expiry.lag", lagSeconds, AtomicLong::get)
+                .description("Age of the oldest waiting booking whose start has passed")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    // Пачки обрабатываются в отдельных транзакциях, число пачек за запуск ограничено
+    @Scheduled(initialDelayString = "${shareit.booking-expiry.delay-ms:60000}",
+            fixedDelayString = "${shareit.booking-expiry.delay-ms:60000}")
+    public void expire() {
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            int expired = bookingExpirer.expireBatch(now, batchSize);
+            total += expired;
+            processed.increment(expired);
+            if (expired < batchSize) {
+                break;
+            }
+        }
+        LocalDateTime oldestOverdueStart = bookingExpirer.findOldestOverdueStart(now);
+        lagSeconds.set(Objects.isNull(oldestOverdueStart) ? 0 :
+                Duration.between(oldestOverdueStart, now).getSeconds());
+        if (total > 0) {
+            log.info("Expired {} waiting bookings with start before {}", total, now);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.practicum.shareit.booking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingDtoMapper;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.booking.storage.BookingRow;
+import ru.practicum.shareit.util.export.NdjsonWriter;
+
+import java.io.OutputStream;
+import java.util.stream.Stream;
+
+/*
+ * Выгрузка бронирований вещей владельца, включая архив, в NDJSON в формате элементов GET /bookings/owner.
+ * Строки читаются курсором базы и сразу пишутся в ответ.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class BookingExporter {
+    private final BookingRepository bookingRepository;
+    private final BookingDtoMapper bookingDtoMapper;
+    private final ObjectMapper objectMapper;
+
+    // Вызывается из потока записи ответа, поэтому открывает собственную транзакцию
+    @Transactional(readOnly = true)
+    public void writeOwnerBookings(long ownerId, OutputStream out) {
+        NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+        try (Stream<BookingRow> bookings = bookingRepository.streamByItemOwnerId(ownerId)) {
+            bookings.forEach(booking -> writer.write(bookingDtoMapper.toDto(booking)));
+        }
+        log.debug("Export bookings of owner id={}", ownerId);
+    }
+}
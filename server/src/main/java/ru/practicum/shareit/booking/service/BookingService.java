@@ -1,19 +1,40 @@
 package ru.practicum.shareit.booking.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingBatchDtoOut;
 import ru.practicum.shareit.booking.dto.BookingDtoIn;
 import ru.practicum.shareit.booking.dto.BookingDtoOut;
 import ru.practicum.shareit.booking.dto.BookingSearchState;
+import ru.practicum.shareit.booking.dto.BookingSummaryDtoOut;
+import ru.practicum.shareit.util.pagination.SeekCursor;
 
 import java.util.List;
 
 public interface BookingService {
     BookingDtoOut add(BookingDtoIn dto, long userId);
 
+    List<BookingBatchDtoOut> addAll(List<BookingDtoIn> dtos, long userId);
+
     BookingDtoOut approve(long bookingId, long userId, boolean approved);
 
+    List<BookingDtoOut> approveAll(List<Long> bookingIds, long userId, boolean approved);
+
     BookingDtoOut findById(long bookingId, long userId);
 
+    SseEmitter subscribe(long userId, Long lastEventId);
+
+    StreamingResponseBody exportByOwner(long ownerId);
+
+    BookingSummaryDtoOut findBookerSummary(long bookerId);
+
+    BookingSummaryDtoOut findOwnerSummary(long ownerId);
+
     List<BookingDtoOut> findByBooker(long bookerId, BookingSearchState state, long from, int size);
 
+    List<BookingDtoOut> findByBooker(long bookerId, BookingSearchState state, SeekCursor cursor, int size);
+
     List<BookingDtoOut> findByOwner(long ownerId, BookingSearchState state, long from, int size);
+
+    List<BookingDtoOut> findByOwner(long ownerId, BookingSearchState state, SeekCursor cursor, int size);
 }
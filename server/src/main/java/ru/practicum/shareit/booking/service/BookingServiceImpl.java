@@ -7,32 +7,66 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingBatchDtoOut;
 import ru.practicum.shareit.booking.dto.BookingDtoIn;
 import ru.practicum.shareit.booking.dto.BookingDtoMapper;
 import ru.practicum.shareit.booking.dto.BookingDtoOut;
 import ru.practicum.shareit.booking.dto.BookingSearchState;
+import ru.practicum.shareit.booking.dto.BookingSummaryDtoMapper;
+import ru.practicum.shareit.booking.dto.BookingSummaryDtoOut;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingCounter;
+import ru.practicum.shareit.booking.model.BookingCounterRole;
+import ru.practicum.shareit.booking.model.BookingEventType;
+import ru.practicum.shareit.booking.model.BookingRecord;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.storage.BookingCounterRepository;
+import ru.practicum.shareit.booking.storage.BookingIntervalIndex;
 import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.booking.storage.BookingRow;
+import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.CustomValidationException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemAvailabilityCache;
+import ru.practicum.shareit.item.service.ItemDetailsCache;
+import ru.practicum.shareit.item.service.ItemStatsUpdater;
 import ru.practicum.shareit.item.storage.ItemRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.storage.UserRepository;
+import ru.practicum.shareit.util.pagination.SeekCursor;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 @Slf4j
 @Transactional(readOnly = true)
 public class BookingServiceImpl implements BookingService {
+    private static final Sort START_DESC_SORT = Sort.by(Sort.Direction.DESC, "start", "id");
+
     private final BookingRepository bookingRepository;
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
     private final BookingDtoMapper bookingDtoMapper;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final BookingCounterUpdater bookingCounterUpdater;
+    private final BookingEventRecorder bookingEventRecorder;
+    private final BookingEventStream bookingEventStream;
+    private final BookingCounterRepository bookingCounterRepository;
+    private final BookingSummaryDtoMapper bookingSummaryDtoMapper;
+    private final ItemAvailabilityCache itemAvailabilityCache;
+    private final ItemDetailsCache itemDetailsCache;
+    private final ItemStatsUpdater itemStatsUpdater;
+    private final BookingExporter bookingExporter;
 
     @Override
     @Transactional
@@ -44,42 +78,117 @@ public class BookingServiceImpl implements BookingService {
             throw new CustomValidationException("Item id=" + item.getId() + " is not available");
         }
         User booker = getUser(userId);
-        Booking booking = bookingDtoMapper.fromDto(dto);
-        booking.setBooker(booker);
-        booking.setItem(item);
-        booking = bookingRepository.save(booking);
-        log.debug("Add booking {}", booking);
+        Booking booking = reserve(dto, item, booker);
+        afterAdded(List.of(booking));
         return bookingDtoMapper.toDto(booking);
     }
 
+    @Override
+    @Transactional
+    public List<BookingBatchDtoOut> addAll(List<BookingDtoIn> dtos, long userId) {
+        User booker = getUser(userId);
+        Map<Long, Item> itemsById = itemRepository.findAllById(dtos.stream()
+                        .map(BookingDtoIn::getItemId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        bookingIntervalIndex.lockItems(itemsById.values().stream()
+                .filter(item -> !item.getOwner().getId().equals(userId) && item.getAvailable())
+                .map(Item::getId)
+                .collect(Collectors.toList()));
+        List<BookingBatchDtoOut> results = new ArrayList<>(dtos.size());
+        List<Booking> added = new ArrayList<>(dtos.size());
+        for (int i = 0; i < dtos.size(); i++) {
+            BookingDtoIn dto = dtos.get(i);
+            try {
+                Item item = itemsById.get(dto.getItemId());
+                if (Objects.isNull(item) || item.getOwner().getId().equals(userId)) {
+                    throw new NotFoundException("Item with id=" + dto.getItemId() +
+                            " and owner id other then " + userId + " not found");
+                }
+                if (!item.getAvailable()) {
+                    throw new CustomValidationException("Item id=" + item.getId() + " is not available");
+                }
+                if (Objects.isNull(dto.getStart()) || Objects.isNull(dto.getEnd()) ||
+                        !dto.getEnd().isAfter(dto.getStart())) {
+                    throw new CustomValidationException("Booking end must be after start");
+                }
+                Booking booking = reserve(dto, item, booker);
+                added.add(booking);
+                results.add(new BookingBatchDtoOut(i, bookingDtoMapper.toDto(booking), null));
+            } catch (NotFoundException | CustomValidationException | ConflictException e) {
+                results.add(new BookingBatchDtoOut(i, null, e.getMessage()));
+            }
+        }
+        afterAdded(added);
+        return results;
+    }
+
     @Override
     @Transactional
     public BookingDtoOut approve(long bookingId, long userId, boolean approved) {
-        Booking booking = bookingRepository.findByIdAndItemOwnerId(bookingId, userId)
-                .orElseThrow(() -> new NotFoundException(
-                        "Booking with id=" + bookingId + " and owner id=" + userId + " not found"));
-        if (!BookingStatus.WAITING.equals(booking.getStatus())) {
+        if (!updateStatusIfWaiting(bookingId, userId, approved)) {
+            bookingRepository.findByIdAndItemOwnerId(bookingId, userId)
+                    .orElseThrow(() -> new NotFoundException(
+                            "Booking with id=" + bookingId + " and owner id=" + userId + " not found"));
             throw new CustomValidationException("Booking already has been approved/rejected");
         }
-        booking.setStatus(approved ? BookingStatus.APPROVED : BookingStatus.REJECTED);
-        log.debug("Approved booking {}", booking);
+        BookingRecord booking = bookingRepository.findByIdAndItemOwnerIdOrBookerId(bookingId, userId)
+                .orElseThrow(() -> new NotFoundException("Booking with id=" + bookingId + " not found"));
+        afterStatusUpdate(booking);
         return bookingDtoMapper.toDto(booking);
     }
 
+    @Override
+    @Transactional
+    public List<BookingDtoOut> approveAll(List<Long> bookingIds, long userId, boolean approved) {
+        List<Long> updatedIds = bookingIds.stream()
+                .distinct()
+                .filter(bookingId -> updateStatusIfWaiting(bookingId, userId, approved))
+                .collect(Collectors.toList());
+        List<Booking> bookings = updatedIds.isEmpty() ?
+                List.of() :
+                bookingRepository.findAllByIdIn(updatedIds, Sort.by(Sort.Direction.ASC, "id"));
+        bookings.forEach(this::afterStatusUpdate);
+        return bookingDtoMapper.toDto(bookings);
+    }
+
     @Override
     public BookingDtoOut findById(long bookingId, long userId) {
-        Booking booking = bookingRepository.findByIdAndItemOwnerIdOrBookerId(bookingId, userId)
+        BookingRecord booking = bookingRepository.findByIdAndItemOwnerIdOrBookerId(bookingId, userId)
                 .orElseThrow(() -> new NotFoundException(
                         "Booking with id=" + bookingId + " and owner or booker id=" + userId + " not found"));
         return bookingDtoMapper.toDto(booking);
     }
 
+    @Override
+    public SseEmitter subscribe(long userId, Long lastEventId) {
+        getUser(userId);
+        return bookingEventStream.subscribe(userId, lastEventId);
+    }
+
+    @Override
+    public StreamingResponseBody exportByOwner(long ownerId) {
+        getUser(ownerId);
+        return out -> bookingExporter.writeOwnerBookings(ownerId, out);
+    }
+
+    @Override
+    public BookingSummaryDtoOut findBookerSummary(long bookerId) {
+        return findSummary(bookerId, BookingCounterRole.BOOKER);
+    }
+
+    @Override
+    public BookingSummaryDtoOut findOwnerSummary(long ownerId) {
+        return findSummary(ownerId, BookingCounterRole.OWNER);
+    }
+
     @Override
     public List<BookingDtoOut> findByBooker(long bookerId, BookingSearchState state, long from, int size) {
         User booker = getUser(bookerId);
-        List<Booking> bookings;
+        List<BookingRow> bookings;
         LocalDateTime now = LocalDateTime.now();
-        PageRequest pageable = formPageable(from, size, Sort.by(Sort.Direction.DESC, "start"));
+        PageRequest pageable = formPageable(from, size, START_DESC_SORT);
         switch (state) {
             case PAST:
                 bookings = bookingRepository.findByBookerAndEndIsBefore(booker, now, pageable);
@@ -96,20 +205,64 @@ public class BookingServiceImpl implements BookingService {
             case REJECTED:
                 bookings = bookingRepository.findByBookerAndStatusIs(booker, BookingStatus.REJECTED, pageable);
                 break;
+            case EXPIRED:
+                bookings = bookingRepository.findByBookerAndStatusIs(booker, BookingStatus.EXPIRED, pageable);
+                break;
             case ALL:
             default:
                 bookings = bookingRepository.findByBooker(booker, pageable);
                 break;
         }
-        return bookingDtoMapper.toDto(bookings);
+        return bookingDtoMapper.rowsToDto(bookings);
+    }
+
+    @Override
+    public List<BookingDtoOut> findByBooker(long bookerId, BookingSearchState state, SeekCursor cursor, int size) {
+        User booker = getUser(bookerId);
+        List<BookingRow> bookings;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cursorStart = cursor.getTime();
+        Long cursorId = cursor.getId();
+        PageRequest pageable = PageRequest.of(0, size, START_DESC_SORT);
+        switch (state) {
+            case PAST:
+                bookings = bookingRepository.findByBookerAndEndIsBeforeSeek(
+                        booker, now, cursorStart, cursorId, pageable);
+                break;
+            case FUTURE:
+                bookings = bookingRepository.findByBookerAndStartIsAfterSeek(
+                        booker, now, cursorStart, cursorId, pageable);
+                break;
+            case CURRENT:
+                bookings = bookingRepository.findByBookerAndStartIsBeforeAndEndIsAfterSeek(
+                        booker, now, cursorStart, cursorId, pageable);
+                break;
+            case WAITING:
+                bookings = bookingRepository.findByBookerAndStatusIsSeek(
+                        booker, BookingStatus.WAITING, cursorStart, cursorId, pageable);
+                break;
+            case REJECTED:
+                bookings = bookingRepository.findByBookerAndStatusIsSeek(
+                        booker, BookingStatus.REJECTED, cursorStart, cursorId, pageable);
+                break;
+            case EXPIRED:
+                bookings = bookingRepository.findByBookerAndStatusIsSeek(
+                        booker, BookingStatus.EXPIRED, cursorStart, cursorId, pageable);
+                break;
+            case ALL:
+            default:
+                bookings = bookingRepository.findByBookerSeek(booker, cursorStart, cursorId, pageable);
+                break;
+        }
+        return bookingDtoMapper.rowsToDto(bookings);
     }
 
     @Override
     public List<BookingDtoOut> findByOwner(long ownerId, BookingSearchState state, long from, int size) {
         User owner = getUser(ownerId);
-        List<Booking> bookings;
+        List<BookingRow> bookings;
         LocalDateTime now = LocalDateTime.now();
-        PageRequest pageable = formPageable(from, size, Sort.by(Sort.Direction.DESC, "start"));
+        PageRequest pageable = formPageable(from, size, START_DESC_SORT);
         switch (state) {
             case PAST:
                 bookings = bookingRepository.findByItemOwnerAndEndIsBefore(owner, now, pageable);
@@ -126,18 +279,115 @@ public class BookingServiceImpl implements BookingService {
             case REJECTED:
                 bookings = bookingRepository.findByItemOwnerAndStatusIs(owner, BookingStatus.REJECTED, pageable);
                 break;
+            case EXPIRED:
+                bookings = bookingRepository.findByItemOwnerAndStatusIs(owner, BookingStatus.EXPIRED, pageable);
+                break;
             case ALL:
             default:
                 bookings = bookingRepository.findByItemOwner(owner, pageable);
                 break;
         }
-        return bookingDtoMapper.toDto(bookings);
+        return bookingDtoMapper.rowsToDto(bookings);
+    }
+
+    @Override
+    public List<BookingDtoOut> findByOwner(long ownerId, BookingSearchState state, SeekCursor cursor, int size) {
+        User owner = getUser(ownerId);
+        List<BookingRow> bookings;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cursorStart = cursor.getTime();
+        Long cursorId = cursor.getId();
+        PageRequest pageable = PageRequest.of(0, size, START_DESC_SORT);
+        switch (state) {
+            case PAST:
+                bookings = bookingRepository.findByItemOwnerAndEndIsBeforeSeek(
+                        owner, now, cursorStart, cursorId, pageable);
+                break;
+            case FUTURE:
+                bookings = bookingRepository.findByItemOwnerAndStartIsAfterSeek(
+                        owner, now, cursorStart, cursorId, pageable);
+                break;
+            case CURRENT:
+                bookings = bookingRepository.findByItemOwnerAndStartIsBeforeAndEndIsAfterSeek(
+                        owner, now, cursorStart, cursorId, pageable);
+                break;
+            case WAITING:
+                bookings = bookingRepository.findByItemOwnerAndStatusIsSeek(
+                        owner, BookingStatus.WAITING, cursorStart, cursorId, pageable);
+                break;
+            case REJECTED:
+                bookings = bookingRepository.findByItemOwnerAndStatusIsSeek(
+                        owner, BookingStatus.REJECTED, cursorStart, cursorId, pageable);
+                break;
+            case EXPIRED:
+                bookings = bookingRepository.findByItemOwnerAndStatusIsSeek(
+                        owner, BookingStatus.EXPIRED, cursorStart, cursorId, pageable);
+                break;
+            case ALL:
+            default:
+                bookings = bookingRepository.findByItemOwnerSeek(owner, cursorStart, cursorId, pageable);
+                break;
+        }
+        return bookingDtoMapper.rowsToDto(bookings);
+    }
+
+    private boolean updateStatusIfWaiting(long bookingId, long ownerId, boolean approved) {
+        BookingStatus newStatus = approved ? BookingStatus.APPROVED : BookingStatus.REJECTED;
+        return bookingRepository.updateStatusByIdAndItemOwnerId(
+                bookingId, ownerId, BookingStatus.WAITING, newStatus) > 0;
+    }
+
+    private void afterStatusUpdate(BookingRecord booking) {
+        if (BookingStatus.APPROVED.equals(booking.getStatus())) {
+            // Подтвержденное бронирование может стать lastBooking или nextBooking вещи
+            itemStatsUpdater.onBookingApproved(booking.getItem().getId(), LocalDateTime.now());
+            itemDetailsCache.invalidateAfterCommit(booking.getItem().getId());
+        }
+        bookingCounterUpdater.onStatusChanged(booking, BookingStatus.WAITING);
+        itemAvailabilityCache.invalidateAfterCommit(booking.getItem().getId());
+        bookingEventRecorder.record(booking, BookingStatus.APPROVED.equals(booking.getStatus()) ?
+                BookingEventType.APPROVED : BookingEventType.REJECTED);
+        log.debug("Set booking status {}: {}", booking.getStatus(), booking);
+    }
+
+    private BookingSummaryDtoOut findSummary(long userId, BookingCounterRole role) {
+        getUser(userId);
+        BookingCounter counter = bookingCounterRepository.findById(new BookingCounter.Key(userId, role))
+                .orElseThrow(() -> new NotFoundException(
+                        "Booking counters of user id=" + userId + " and role " + role + " not found"));
+        return bookingSummaryDtoMapper.toDto(counter);
     }
 
     private static PageRequest formPageable(long from, Integer size, Sort sort) {
         return PageRequest.of((int) (from / size), size, sort);
     }
 
+    // При SEQUENCE идентификаторе save не выполняет insert сразу, вставки уходят пакетами при flush
+    private Booking reserve(BookingDtoIn dto, Item item, User booker) {
+        Booking newBooking = bookingDtoMapper.fromDto(dto);
+        newBooking.setBooker(booker);
+        newBooking.setItem(item);
+        newBooking.setCreated(LocalDateTime.now());
+        return bookingIntervalIndex.reserve(item.getId(), newBooking.getStart(), newBooking.getEnd(),
+                () -> bookingRepository.save(newBooking));
+    }
+
+    // Счетчики и статистика меняются одним update на пользователя и вещь для всей пачки, события уходят
+    // вставками вместе с бронированиями при flush
+    private void afterAdded(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+        bookingCounterUpdater.onAdded(bookings);
+        itemStatsUpdater.onBookingsAdded(bookings);
+        for (Booking booking : bookings) {
+            itemAvailabilityCache.invalidateAfterCommit(booking.getItem().getId());
+            itemDetailsCache.invalidateAfterCommit(booking.getItem().getId());
+            bookingEventRecorder.record(booking, BookingEventType.CREATED);
+            log.debug("Add booking {}", booking);
+        }
+    }
+
     private User getUser(long userId) {
         return userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("User with id=" + userId + " not found"));
@@ -0,0 +1,40 @@
+package ru.practicum.shareit.booking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingEventDto;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Кольцевой буфер последних событий для тестов. При переполнении вытесняются самые старые, поэтому буфер,
+// который никто не читает, не останавливает диспетчер
+@Component
+@ConditionalOnProperty(name = "shareit.booking-events.in-memory-sink.enabled", havingValue = "true")
+public class InMemoryBookingEventSink implements BookingEventSink {
+    private final Deque<BookingEventDto> events = new ArrayDeque<>();
+    private final int capacity;
+
+    public InMemoryBookingEventSink(@Value("${shareit.booking-events.in-memory-sink.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void accept(List<BookingEventDto> events) {
+        for (BookingEventDto event : events) {
+            this.events.addLast(event);
+            if (this.events.size() > capacity) {
+                this.events.removeFirst();
+            }
+        }
+    }
+
+    public synchronized List<BookingEventDto> drain() {
+        List<BookingEventDto> drained = new ArrayList<>(events);
+        events.clear();
+        return drained;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingEventDto;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "shareit.booking-events.log-sink.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class LoggingBookingEventSink implements BookingEventSink {
+
+    @Override
+    public void accept(List<BookingEventDto> events) {
+        events.forEach(event -> log.info("Booking event {}", event));
+    }
+}
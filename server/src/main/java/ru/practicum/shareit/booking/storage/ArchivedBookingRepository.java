@@ -0,0 +1,55 @@
+package ru.practicum.shareit.booking.storage;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.booking.model.ArchivedBooking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.model.Item;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ArchivedBookingRepository extends JpaRepository<ArchivedBooking, Long> {
+
+    Optional<ArchivedBooking> findFirstByItemAndStartLessThanEqualAndStatusIs(
+            Item item, LocalDateTime maxStart, BookingStatus status, Sort sort);
+
+    // Для каждой вещи не более одного последнего (start <= now) бронирования из архива
+    @Query(value = "select id, start_time, end_time, item_id, booker_id, status, created " +
+            "from (select b.*, " +
+            "row_number() over (partition by b.item_id order by b.start_time desc, b.id desc) as rn " +
+            "from bookings_archive as b " +
+            "where b.item_id in (:itemIds) and b.status = :status and b.start_time <= :now) as last_bookings " +
+            "where rn = 1",
+            nativeQuery = true)
+    List<ArchivedBooking> findLastByItemIds(@Param("itemIds") Collection<Long> itemIds,
+                                            @Param("status") String status,
+                                            @Param("now") LocalDateTime now);
+
+    // Блокировка строк не дает двум экземплярам сервиса перенести одни и те же бронирования
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "select b.id from Booking as b where b.end < :maxEnd and b.status in :statuses order by b.id")
+    List<Long> findIdsToArchive(@Param("maxEnd") LocalDateTime maxEnd,
+                                @Param("statuses") Collection<BookingStatus> statuses,
+                                Pageable pageable);
+
+    @Modifying
+    @Query(value = "insert into bookings_archive (id, start_time, end_time, item_id, booker_id, status, created) " +
+            "select id, start_time, end_time, item_id, booker_id, status, created " +
+            "from bookings " +
+            "where id in (:ids)",
+            nativeQuery = true)
+    int copyFromBookings(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "delete from bookings where id in (:ids)", nativeQuery = true)
+    int deleteFromBookings(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,32 @@
+package ru.practicum.shareit.booking.storage;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.booking.model.BookingCounter;
+import ru.practicum.shareit.booking.model.BookingCounterRole;
+
+public interface BookingCounterRepository extends JpaRepository<BookingCounter, BookingCounter.Key> {
+
+    // Атомарное изменение счетчиков на дельту, без чтения строки
+    @Modifying
+    @Query(value = "update BookingCounter as c " +
+            "set c.allCount = c.allCount + :all, " +
+            "c.currentCount = c.currentCount + :current, " +
+            "c.pastCount = c.pastCount + :past, " +
+            "c.futureCount = c.futureCount + :future, " +
+            "c.waitingCount = c.waitingCount + :waiting, " +
+            "c.rejectedCount = c.rejectedCount + :rejected, " +
+            "c.expiredCount = c.expiredCount + :expired " +
+            "where c.userId = :userId and c.role = :role")
+    int increment(@Param("userId") Long userId,
+                  @Param("role") BookingCounterRole role,
+                  @Param("all") long all,
+                  @Param("current") long current,
+                  @Param("past") long past,
+                  @Param("future") long future,
+                  @Param("waiting") long waiting,
+                  @Param("rejected") long rejected,
+                  @Param("expired") long expired);
+}
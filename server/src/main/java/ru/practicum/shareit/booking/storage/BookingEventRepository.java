@@ -0,0 +1,46 @@
+package ru.practicum.shareit.booking.storage;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.booking.model.BookingEvent;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BookingEventRepository extends JpaRepository<BookingEvent, Long> {
+
+    // Строки, заблокированные другим экземпляром диспетчера, пропускаются (lock timeout -2 = SKIP LOCKED)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query(value = "select e from BookingEvent as e where e.dispatchedAt is null order by e.id")
+    List<BookingEvent> findUndispatched(Pageable pageable);
+
+    @Query(value = "select max(e.dispatchSeq) from BookingEvent as e")
+    Long findMaxDispatchSeq();
+
+    // Отправленные события после позиции в порядке отправки, для потоков событий каждого экземпляра
+    @Query(value = "select e from BookingEvent as e where e.dispatchSeq > :dispatchSeq order by e.dispatchSeq")
+    List<BookingEvent> findDispatchedAfter(@Param("dispatchSeq") Long dispatchSeq, Pageable pageable);
+
+    // Отправленные события пользователя после lastDispatchSeq, для возобновления потока по Last-Event-ID
+    @Query(value = "select e from BookingEvent as e " +
+            "where e.dispatchSeq > :lastDispatchSeq " +
+            "and (e.bookerId = :userId or e.ownerId = :userId) " +
+            "order by e.dispatchSeq")
+    List<BookingEvent> findDispatchedByUserIdAfter(@Param("userId") Long userId,
+                                                   @Param("lastDispatchSeq") Long lastDispatchSeq,
+                                                   Pageable pageable);
+
+    // Последнее отправленное событие не удаляется: от его номера продолжается нумерация следующих пачек
+    @Modifying
+    @Query(value = "delete from BookingEvent as e where e.dispatchedAt < :maxDispatchedAt " +
+            "and e.dispatchSeq < (select max(l.dispatchSeq) from BookingEvent as l)")
+    int deleteByDispatchedAtBefore(@Param("maxDispatchedAt") LocalDateTime maxDispatchedAt);
+}
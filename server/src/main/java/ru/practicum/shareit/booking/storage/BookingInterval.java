@@ -0,0 +1,11 @@
+package ru.practicum.shareit.booking.storage;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+public class BookingInterval {
+    LocalDateTime start;
+    LocalDateTime end;
+}
@@ -0,0 +1,112 @@
+package ru.practicum.shareit.booking.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.storage.ItemRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/*
+ * Проверка пересечения WAITING/APPROVED бронирований вещи. Бронирование блокирует строку вещи
+ * (select ... for update) до конца транзакции, поэтому бронирования одной вещи со всех экземпляров сервиса идут
+ * по очереди, и запрос пересечений по idx_bookings_item_status_start видит все зафиксированные бронирования.
+ * Бронирования, добавленные текущей транзакцией, еще не записаны в bookings (вставки уходят пакетом при flush),
+ * поэтому пересечения с ними проверяются по списку интервалов транзакции. Общего кэша интервалов нет: отказ
+ * всегда подтвержден базой под блокировкой, а отклонения и истечения на других экземплярах видны сразу.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class BookingIntervalIndex {
+    private static final List<BookingStatus> BLOCKING_STATUSES = List.of(BookingStatus.WAITING,
+            BookingStatus.APPROVED);
+
+    private final BookingRepository bookingRepository;
+    private final ItemRepository itemRepository;
+
+    /*
+     * Блокирует строки вещей по возрастанию id. Пакет вызывает это до обработки строк: иначе вещи блокировались
+     * бы в порядке запроса, и пакеты [A, B] и [B, A] ждали бы друг друга
+     */
+    public void lockItems(Collection<Long> itemIds) {
+        itemIds.stream()
+                .distinct()
+                .sorted()
+                .forEach(this::lockItem);
+    }
+
+    // Проверяет пересечение и сохраняет бронирование. Вызывается в транзакции
+    public Booking reserve(long itemId, LocalDateTime start, LocalDateTime end, Supplier<Booking> writer) {
+        List<BookingInterval> reserved = lockItem(itemId);
+        for (BookingInterval interval : reserved) {
+            if (interval.getStart().isBefore(end) && interval.getEnd().isAfter(start)) {
+                throw conflict(itemId, interval);
+            }
+        }
+        List<BookingInterval> overlapping = bookingRepository.findOverlapping(itemId, BLOCKING_STATUSES, start, end,
+                PageRequest.of(0, 1));
+        if (!overlapping.isEmpty()) {
+            throw conflict(itemId, overlapping.get(0));
+        }
+        Booking booking = writer.get();
+        reserved.add(new BookingInterval(start, end));
+        return booking;
+    }
+
+    // Блокирует строку вещи, если текущая транзакция еще не сделала этого, и возвращает добавленные ей интервалы
+    private List<BookingInterval> lockItem(long itemId) {
+        Map<Long, List<BookingInterval>> reservedByItemId = reservedInTransaction();
+        List<BookingInterval> reserved = reservedByItemId.get(itemId);
+        if (Objects.nonNull(reserved)) {
+            return reserved;
+        }
+        itemRepository.lockById(itemId)
+                .orElseThrow(() -> new NotFoundException("Item with id=" + itemId + " not found"));
+        reserved = new ArrayList<>();
+        reservedByItemId.put(itemId, reserved);
+        log.debug("Lock item id={} for booking", itemId);
+        return reserved;
+    }
+
+    // Интервалы, добавленные текущей транзакцией, по заблокированным вещам. Хранятся как ресурс транзакции
+    @SuppressWarnings("unchecked")
+    private Map<Long, List<BookingInterval>> reservedInTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Booking reservation requires an active transaction");
+        }
+        Map<Long, List<BookingInterval>> reservedByItemId =
+                (Map<Long, List<BookingInterval>>) TransactionSynchronizationManager.getResource(this);
+        if (Objects.isNull(reservedByItemId)) {
+            reservedByItemId = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, reservedByItemId);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(BookingIntervalIndex.this);
+                }
+            });
+        }
+        return reservedByItemId;
+    }
+
+    private static ConflictException conflict(long itemId, BookingInterval interval) {
+        return new ConflictException("Item id=" + itemId + " is already booked from " +
+                interval.getStart() + " to " + interval.getEnd());
+    }
+}
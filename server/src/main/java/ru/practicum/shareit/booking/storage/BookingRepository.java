@@ -2,63 +2,290 @@ package ru.practicum.shareit.booking.storage;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingRecord;
 import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.model.User;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
-    Optional<Booking> findByIdAndItemOwnerId(Long id, Long ownerId);
+    // Проекция списков бронирований сразу в BookingRow, без загрузки сущностей в контекст персистентности
+    String ROW_COLUMNS = "select new ru.practicum.shareit.booking.storage.BookingRow(" +
+            "b.id, b.start, b.end, item.id, item.name, item.description, item.available, item.request.id, " +
+            "booker.id, booker.name, booker.email, b.status) ";
+
+    String ROW_JOINS = "join b.item as item " +
+            "join b.booker as booker ";
+
+    // Только оперативная таблица bookings
+    String ROW_SELECT = ROW_COLUMNS + "from Booking as b " + ROW_JOINS;
+
+    // bookings и архив bookings_archive, для состояний, которым нужна история (ALL, PAST)
+    String ROW_SELECT_WITH_ARCHIVE = ROW_COLUMNS + "from BookingRecord as b " + ROW_JOINS;
+
+    String BOOKER_WHERE = "where b.booker = :booker ";
+
+    String OWNER_WHERE = "where item.owner = :owner ";
+
+    String SEEK_CONDITION = "and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId)) ";
+
+    @Query(value = "select b from BookingRecord as b where b.id = :bookingId and b.item.owner.id = :ownerId")
+    Optional<BookingRecord> findByIdAndItemOwnerId(@Param("bookingId") Long id, @Param("ownerId") Long ownerId);
+
+    // Условное обновление статуса: возвращает 1, если бронирование было в статусе expectedStatus
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update Booking as b " +
+            "set b.status = :newStatus " +
+            "where b.id = :bookingId and b.status = :expectedStatus " +
+            "and b.item.id in (select item.id from Item as item where item.owner.id = :ownerId)")
+    int updateStatusByIdAndItemOwnerId(@Param("bookingId") Long id,
+                                       @Param("ownerId") Long ownerId,
+                                       @Param("expectedStatus") BookingStatus expectedStatus,
+                                       @Param("newStatus") BookingStatus newStatus);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
+    List<Booking> findAllByIdIn(Collection<Long> ids, Sort sort);
+
+    // Блокировка строк не дает двум экземплярам сервиса обработать одни и те же бронирования
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "select b.id from Booking as b where b.status = :status and b.start < :maxStart order by b.id")
+    List<Long> findIdsByStatusAndStartBefore(@Param("status") BookingStatus status,
+                                             @Param("maxStart") LocalDateTime maxStart,
+                                             Pageable pageable);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update Booking as b " +
+            "set b.status = :newStatus " +
+            "where b.id in :ids and b.status = :expectedStatus")
+    int updateStatusByIdIn(@Param("ids") Collection<Long> ids,
+                           @Param("expectedStatus") BookingStatus expectedStatus,
+                           @Param("newStatus") BookingStatus newStatus);
+
+    @Query(value = "select min(b.start) from Booking as b where b.status = :status and b.start < :maxStart")
+    LocalDateTime findMinStartByStatusAndStartBefore(@Param("status") BookingStatus status,
+                                                     @Param("maxStart") LocalDateTime maxStart);
+
+    // Явные join не дают Hibernate применить @EntityGraph, поэтому вещь и бронирующий загружаются через join fetch
     @Query(value = "select b " +
-            "from Booking as b " +
-            "join b.item as item " +
+            "from BookingRecord as b " +
+            "join fetch b.item as item " +
             "join item.owner as owner " +
-            "join b.booker as booker " +
+            "join fetch b.booker as booker " +
             "where b.id = :bookingId and (owner.id = :userId or booker.id = :userId)")
-    Optional<Booking> findByIdAndItemOwnerIdOrBookerId(@Param("bookingId") Long id, @Param("userId") Long userId);
+    Optional<BookingRecord> findByIdAndItemOwnerIdOrBookerId(@Param("bookingId") Long id, @Param("userId") Long userId);
+
+    @Query(ROW_SELECT_WITH_ARCHIVE + BOOKER_WHERE)
+    List<BookingRow> findByBooker(@Param("booker") User booker, Pageable pageable);
+
+    @Query(ROW_SELECT + BOOKER_WHERE + "and b.start < :maxStart and b.end > :minEnd")
+    List<BookingRow> findByBookerAndStartIsBeforeAndEndIsAfter(@Param("booker") User booker,
+                                                               @Param("maxStart") LocalDateTime maxStart,
+                                                               @Param("minEnd") LocalDateTime minEnd,
+                                                               Pageable pageable);
+
+    @Query(ROW_SELECT + BOOKER_WHERE + "and b.start > :minStart")
+    List<BookingRow> findByBookerAndStartIsAfter(@Param("booker") User booker,
+                                                 @Param("minStart") LocalDateTime minStart,
+                                                 Pageable pageable);
 
-    List<Booking> findByBooker(User booker, Pageable pageable);
+    @Query(ROW_SELECT_WITH_ARCHIVE + BOOKER_WHERE + "and b.end < :maxEnd")
+    List<BookingRow> findByBookerAndEndIsBefore(@Param("booker") User booker,
+                                                @Param("maxEnd") LocalDateTime maxEnd,
+                                                Pageable pageable);
 
-    List<Booking> findByBookerAndStartIsBeforeAndEndIsAfter(
-            User booker, LocalDateTime maxStart, LocalDateTime minEnd, Pageable pageable);
+    @Query(ROW_SELECT + BOOKER_WHERE + "and b.status = :status")
+    List<BookingRow> findByBookerAndStatusIs(@Param("booker") User booker,
+                                             @Param("status") BookingStatus status,
+                                             Pageable pageable);
 
-    List<Booking> findByBookerAndStartIsAfter(User booker, LocalDateTime minStart, Pageable pageable);
+    @Query(ROW_SELECT_WITH_ARCHIVE + BOOKER_WHERE + SEEK_CONDITION)
+    List<BookingRow> findByBookerSeek(@Param("booker") User booker,
+                                      @Param("cursorStart") LocalDateTime cursorStart,
+                                      @Param("cursorId") Long cursorId,
+                                      Pageable pageable);
 
-    List<Booking> findByBookerAndEndIsBefore(User booker, LocalDateTime maxEnd, Pageable pageable);
+    @Query(ROW_SELECT + BOOKER_WHERE + SEEK_CONDITION + "and b.start < :now and b.end > :now")
+    List<BookingRow> findByBookerAndStartIsBeforeAndEndIsAfterSeek(@Param("booker") User booker,
+                                                                   @Param("now") LocalDateTime now,
+                                                                   @Param("cursorStart") LocalDateTime cursorStart,
+                                                                   @Param("cursorId") Long cursorId,
+                                                                   Pageable pageable);
 
-    List<Booking> findByBookerAndStatusIs(User booker, BookingStatus status, Pageable pageable);
+    @Query(ROW_SELECT + BOOKER_WHERE + SEEK_CONDITION + "and b.start > :minStart")
+    List<BookingRow> findByBookerAndStartIsAfterSeek(@Param("booker") User booker,
+                                                     @Param("minStart") LocalDateTime minStart,
+                                                     @Param("cursorStart") LocalDateTime cursorStart,
+                                                     @Param("cursorId") Long cursorId,
+                                                     Pageable pageable);
 
-    List<Booking> findByItemOwner(User booker, Pageable pageable);
+    @Query(ROW_SELECT_WITH_ARCHIVE + BOOKER_WHERE + SEEK_CONDITION + "and b.end < :maxEnd")
+    List<BookingRow> findByBookerAndEndIsBeforeSeek(@Param("booker") User booker,
+                                                    @Param("maxEnd") LocalDateTime maxEnd,
+                                                    @Param("cursorStart") LocalDateTime cursorStart,
+                                                    @Param("cursorId") Long cursorId,
+                                                    Pageable pageable);
 
-    List<Booking> findByItemOwnerAndStartIsBeforeAndEndIsAfter(
-            User booker, LocalDateTime maxStart, LocalDateTime minEnd, Pageable pageable);
+    @Query(ROW_SELECT + BOOKER_WHERE + SEEK_CONDITION + "and b.status = :status")
+    List<BookingRow> findByBookerAndStatusIsSeek(@Param("booker") User booker,
+                                                 @Param("status") BookingStatus status,
+                                                 @Param("cursorStart") LocalDateTime cursorStart,
+                                                 @Param("cursorId") Long cursorId,
+                                                 Pageable pageable);
 
-    List<Booking> findByItemOwnerAndStartIsAfter(User booker, LocalDateTime minStart, Pageable pageable);
+    @Query(ROW_SELECT_WITH_ARCHIVE + OWNER_WHERE)
+    List<BookingRow> findByItemOwner(@Param("owner") User owner, Pageable pageable);
 
-    List<Booking> findByItemOwnerAndEndIsBefore(User booker, LocalDateTime maxEnd, Pageable pageable);
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(ROW_SELECT_WITH_ARCHIVE + "where item.owner.id = :ownerId order by b.start desc, b.id desc")
+    Stream<BookingRow> streamByItemOwnerId(@Param("ownerId") Long ownerId);
 
-    List<Booking> findByItemOwnerAndStatusIs(User booker, BookingStatus status, Pageable pageable);
+    @Query(ROW_SELECT + OWNER_WHERE + "and b.start < :maxStart and b.end > :minEnd")
+    List<BookingRow> findByItemOwnerAndStartIsBeforeAndEndIsAfter(@Param("owner") User owner,
+                                                                  @Param("maxStart") LocalDateTime maxStart,
+                                                                  @Param("minEnd") LocalDateTime minEnd,
+                                                                  Pageable pageable);
+
+    @Query(ROW_SELECT + OWNER_WHERE + "and b.start > :minStart")
+    List<BookingRow> findByItemOwnerAndStartIsAfter(@Param("owner") User owner,
+                                                    @Param("minStart") LocalDateTime minStart,
+                                                    Pageable pageable);
+
+    @Query(ROW_SELECT_WITH_ARCHIVE + OWNER_WHERE + "and b.end < :maxEnd")
+    List<BookingRow> findByItemOwnerAndEndIsBefore(@Param("owner") User owner,
+                                                   @Param("maxEnd") LocalDateTime maxEnd,
+                                                   Pageable pageable);
+
+    @Query(ROW_SELECT + OWNER_WHERE + "and b.status = :status")
+    List<BookingRow> findByItemOwnerAndStatusIs(@Param("owner") User owner,
+                                                @Param("status") BookingStatus status,
+                                                Pageable pageable);
+
+    @Query(ROW_SELECT_WITH_ARCHIVE + OWNER_WHERE + SEEK_CONDITION)
+    List<BookingRow> findByItemOwnerSeek(@Param("owner") User owner,
+                                         @Param("cursorStart") LocalDateTime cursorStart,
+                                         @Param("cursorId") Long cursorId,
+                                         Pageable pageable);
+
+    @Query(ROW_SELECT + OWNER_WHERE + SEEK_CONDITION + "and b.start < :now and b.end > :now")
+    List<BookingRow> findByItemOwnerAndStartIsBeforeAndEndIsAfterSeek(@Param("owner") User owner,
+                                                                      @Param("now") LocalDateTime now,
+                                                                      @Param("cursorStart") LocalDateTime cursorStart,
+                                                                      @Param("cursorId") Long cursorId,
+                                                                      Pageable pageable);
+
+    @Query(ROW_SELECT + OWNER_WHERE + SEEK_CONDITION + "and b.start > :minStart")
+    List<BookingRow> findByItemOwnerAndStartIsAfterSeek(@Param("owner") User owner,
+                                                        @Param("minStart") LocalDateTime minStart,
+                                                        @Param("cursorStart") LocalDateTime cursorStart,
+                                                        @Param("cursorId") Long cursorId,
+                                                        Pageable pageable);
+
+    @Query(ROW_SELECT_WITH_ARCHIVE + OWNER_WHERE + SEEK_CONDITION + "and b.end < :maxEnd")
+    List<BookingRow> findByItemOwnerAndEndIsBeforeSeek(@Param("owner") User owner,
+                                                       @Param("maxEnd") LocalDateTime maxEnd,
+                                                       @Param("cursorStart") LocalDateTime cursorStart,
+                                                       @Param("cursorId") Long cursorId,
+                                                       Pageable pageable);
+
+    @Query(ROW_SELECT + OWNER_WHERE + SEEK_CONDITION + "and b.status = :status")
+    List<BookingRow> findByItemOwnerAndStatusIsSeek(@Param("owner") User owner,
+                                                    @Param("status") BookingStatus status,
+                                                    @Param("cursorStart") LocalDateTime cursorStart,
+                                                    @Param("cursorId") Long cursorId,
+                                                    Pageable pageable);
 
     Optional<Booking> findFirstByItemAndStartAfterAndStatusIs(
             Item item, LocalDateTime minStart, BookingStatus status, Sort sort);
 
-    List<Booking> findAllByItemInAndStartAfterAndStatusIs(
-            List<Item> items, LocalDateTime minStart, BookingStatus status, Sort sort);
-
     Optional<Booking> findFirstByItemAndStartLessThanEqualAndStatusIs(
             Item item, LocalDateTime maxStart, BookingStatus status, Sort sort);
 
-    List<Booking> findAllByItemInAndStartLessThanEqualAndStatusIs(
-            List<Item> items, LocalDateTime maxStart, BookingStatus status, Sort sort);
+    // Для каждой вещи не более одного последнего (start <= now) и одного следующего (start > now) бронирования
+    @Query(value = "select id, start_time, end_time, item_id, booker_id, status, created " +
+            "from (select b.*, " +
+            "row_number() over (partition by b.item_id order by b.start_time desc, b.id desc) as rn " +
+            "from bookings as b " +
+            "where b.item_id in (:itemIds) and b.status = :status and b.start_time <= :now) as last_bookings " +
+            "where rn = 1 " +
+            "union all " +
+            "select id, start_time, end_time, item_id, booker_id, status, created " +
+            "from (select b.*, " +
+            "row_number() over (partition by b.item_id order by b.start_time, b.id) as rn " +
+            "from bookings as b " +
+            "where b.item_id in (:itemIds) and b.status = :status and b.start_time > :now) as next_bookings " +
+            "where rn = 1",
+            nativeQuery = true)
+    List<Booking> findLastAndNextByItemIds(@Param("itemIds") Collection<Long> itemIds,
+                                           @Param("status") String status,
+                                           @Param("now") LocalDateTime now);
+
+    /*
+     * Бронирования вещи, пересекающиеся с [start, end): диапазон по idx_bookings_item_status_start.
+     * Без сброса сессии: неотправленные вставки пакета не уходят по одной перед каждой проверкой,
+     * а пересечения внутри транзакции проверяет BookingIntervalIndex.
+     */
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query(value = "select new ru.practicum.shareit.booking.storage.BookingInterval(b.start, b.end) " +
+            "from Booking as b " +
+            "where b.item.id = :itemId and b.status in :statuses and b.start < :end and b.end > :start")
+    List<BookingInterval> findOverlapping(@Param("itemId") Long itemId,
+                                          @Param("statuses") Collection<BookingStatus> statuses,
+                                          @Param("start") LocalDateTime start,
+                                          @Param("end") LocalDateTime end,
+                                          Pageable pageable);
+
+    // Интервалы, пересекающиеся с окном [from, to), по возрастанию start: диапазон по idx_bookings_item_start
+    @Query(value = "select new ru.practicum.shareit.booking.storage.BookingInterval(b.start, b.end) " +
+            "from Booking as b " +
+            "where b.item.id = :itemId and b.status in :statuses and b.start < :to and b.end > :from " +
+            "order by b.start")
+    List<BookingInterval> findIntervalsByItemIdAndStatusIn(@Param("itemId") Long itemId,
+                                                           @Param("statuses") Collection<BookingStatus> statuses,
+                                                           @Param("from") LocalDateTime from,
+                                                           @Param("to") LocalDateTime to);
+
+    // Завершенные бронирования могут быть уже перенесены в архив
+    @Query(value = "select case when count(b) > 0 then true else false end " +
+            "from BookingRecord as b " +
+            "where b.item = :item and b.booker = :booker and b.end < :maxEnd")
+    boolean existsByItemAndBookerAndEndBefore(@Param("item") Item item,
+                                              @Param("booker") User booker,
+                                              @Param("maxEnd") LocalDateTime maxEnd);
+
+    String TIMES_COLUMNS = "select new ru.practicum.shareit.booking.storage.BookingTimes(" +
+            "b.id, b.booker.id, item.owner.id, b.start, b.end, b.created, b.status) ";
+
+    // Бронирования, у которых start или end попали в окно (from, to], созданные не позже to.
+    // В архиве только бронирования, закончившиеся задолго до окна
+    @Query(value = TIMES_COLUMNS + "from Booking as b join b.item as item " +
+            "where b.created <= :to " +
+            "and ((b.start > :from and b.start <= :to) or (b.end > :from and b.end <= :to))")
+    List<BookingTimes> findTimesWithStartOrEndBetween(@Param("from") LocalDateTime from,
+                                                      @Param("to") LocalDateTime to);
+
+    @Query(value = TIMES_COLUMNS + "from BookingRecord as b join b.item as item " +
+            "where b.booker.id = :userId or item.owner.id = :userId")
+    List<BookingTimes> findTimesByBookerIdOrItemOwnerId(@Param("userId") Long userId);
 
-    Optional<Booking> findFirstByItemAndBookerAndEndBefore(Item item, User booker, LocalDateTime maxEnd);
+    @Query(value = "select min(b.created) from Booking as b")
+    LocalDateTime findMinCreated();
 }
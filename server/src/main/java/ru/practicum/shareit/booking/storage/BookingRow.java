@@ -0,0 +1,23 @@
+package ru.practicum.shareit.booking.storage;
+
+import lombok.Value;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.time.LocalDateTime;
+
+// Плоская строка списка бронирований вместе с вещью и бронирующим
+@Value
+public class BookingRow {
+    Long id;
+    LocalDateTime start;
+    LocalDateTime end;
+    Long itemId;
+    String itemName;
+    String itemDescription;
+    Boolean itemAvailable;
+    Long itemRequestId;
+    Long bookerId;
+    String bookerName;
+    String bookerEmail;
+    BookingStatus status;
+}
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.booking.storage;
+
+import lombok.Value;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.time.LocalDateTime;
+
+// Поля бронирования, от которых зависят счетчики BookingCounter
+@Value
+public class BookingTimes {
+    Long id;
+    Long bookerId;
+    Long ownerId;
+    LocalDateTime start;
+    LocalDateTime end;
+    LocalDateTime created;
+    BookingStatus status;
+}
@@ -2,16 +2,29 @@ package ru.practicum.shareit.item.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.item.dto.*;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.util.pagination.SeekCursor;
 
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/items")
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class ItemController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ItemService itemService;
 
     @GetMapping("/{id}")
@@ -22,16 +35,33 @@ public class ItemController {
 
     @GetMapping
     public List<ItemDtoOutExtended> getAll(@RequestHeader("X-Sharer-User-Id") long userId,
+                                           @RequestParam String sort,
                                            @RequestParam Long from,
                                            @RequestParam Integer size) {
-        return itemService.getAll(userId, from, size);
+        return itemService.getAll(userId, ItemSort.of(sort), from, size);
     }
 
     @GetMapping("/search")
     public List<ItemDto> search(@RequestParam String text,
+                                @RequestParam String sort,
                                 @RequestParam Long from,
                                 @RequestParam Integer size) {
-        return itemService.search(text, from, size);
+        return itemService.search(text, ItemSort.of(sort), from, size);
+    }
+
+    @GetMapping("/{id}/availability")
+    public ItemAvailabilityDtoOut getAvailability(
+            @PathVariable long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestHeader("X-Sharer-User-Id") long userId) {
+        return itemService.getAvailability(id, from, to, userId);
+    }
+
+    @GetMapping("/suggest")
+    public List<String> suggest(@RequestParam String prefix,
+                                @RequestParam Integer size) {
+        return itemService.suggest(prefix, size);
     }
 
     @PostMapping
@@ -40,6 +70,19 @@ public class ItemController {
         return itemService.add(itemDto, userId);
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public List<ItemImportDtoOut> importItems(InputStream body,
+                                              @RequestHeader("X-Sharer-User-Id") long userId) {
+        return itemService.importItems(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)), userId);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportItems(@RequestHeader("X-Sharer-User-Id") long userId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(itemService.exportItems(userId));
+    }
+
     @PatchMapping("/{id}")
     public ItemDto patch(@PathVariable long id,
                          @RequestBody ItemPatchDto patchDto,
@@ -47,6 +90,23 @@ public class ItemController {
         return itemService.patch(id, patchDto, userId);
     }
 
+    @GetMapping("/{id}/comments")
+    public ResponseEntity<List<CommentDtoOut>> getComments(@PathVariable long id,
+                                                           @RequestHeader("X-Sharer-User-Id") long userId,
+                                                           @RequestParam Integer size,
+                                                           @RequestParam(required = false) String cursor) {
+        List<CommentDtoOut> comments = Objects.isNull(cursor) ?
+                itemService.getComments(id, userId, size) :
+                itemService.getComments(id, userId, SeekCursor.decode(cursor), size);
+        if (comments.size() < size) {
+            return ResponseEntity.ok(comments);
+        }
+        CommentDtoOut last = comments.get(comments.size() - 1);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, SeekCursor.of(last.getCreated(), last.getId()).encode())
+                .body(comments);
+    }
+
     @PostMapping("/{itemId}/comment")
     public CommentDtoOut addComment(@RequestBody CommentDtoIn dto,
                                     @PathVariable long itemId,
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Свободные и занятые WAITING/APPROVED бронированиями промежутки вещи в окне [from, to)
+@Value
+public class ItemAvailabilityDtoOut {
+    Long itemId;
+    LocalDateTime from;
+    LocalDateTime to;
+    List<TimeSlotDto> free;
+    List<TimeSlotDto> busy;
+}
@@ -3,9 +3,10 @@ package ru.practicum.shareit.item.dto;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import ru.practicum.shareit.booking.dto.BookingDtoShortMapper;
-import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingRecord;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemStats;
 
 import java.util.List;
 
@@ -18,12 +19,14 @@ public interface ItemDtoMapper {
 
     @Mapping(target = "id", source = "item.id")
     @Mapping(target = "requestId", source = "item.request.id")
-    ItemDtoOutExtended toDtoExtended(Item item, List<Comment> comments, Booking lastBooking, Booking nextBooking);
+    ItemDtoOutExtended toDtoExtended(Item item, List<Comment> comments, ItemStats stats,
+                                     BookingRecord lastBooking, BookingRecord nextBooking);
 
+    @Mapping(target = "id", source = "item.id")
     @Mapping(target = "nextBooking", ignore = true)
     @Mapping(target = "lastBooking", ignore = true)
     @Mapping(target = "requestId", source = "item.request.id")
-    ItemDtoOutExtended toDtoExtended(Item item, List<Comment> comments);
+    ItemDtoOutExtended toDtoExtended(Item item, List<Comment> comments, ItemStats stats);
 
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "request", ignore = true)
@@ -3,6 +3,7 @@ package ru.practicum.shareit.item.dto;
 import lombok.Value;
 import ru.practicum.shareit.booking.dto.BookingDtoShort;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Value
@@ -14,5 +15,10 @@ public class ItemDtoOutExtended {
     Long requestId;
     BookingDtoShort lastBooking;
     BookingDtoShort nextBooking;
+    // Последние комментарии (не больше shareit.item.embedded-comments), все - через /items/{id}/comments
     List<CommentDtoOut> comments;
+    // Статистика из ItemStats
+    Long commentsCount;
+    Long bookingsCount;
+    LocalDateTime lastActivity;
 }
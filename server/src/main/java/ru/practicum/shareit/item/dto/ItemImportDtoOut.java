@@ -0,0 +1,14 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.Value;
+
+// Результат импорта одной строки NDJSON (нумерация с 1): либо id созданной вещи, либо error
+@Value
+public class ItemImportDtoOut {
+
+    Integer line;
+
+    Long id;
+
+    String error;
+}
@@ -0,0 +1,19 @@
+package ru.practicum.shareit.item.dto;
+
+import ru.practicum.shareit.exception.CustomValidationException;
+
+// Порядок списков вещей: DEFAULT - по id для списка владельца и по релевантности для поиска, остальные - по убыванию
+public enum ItemSort {
+    DEFAULT,
+    COMMENTS,
+    BOOKINGS,
+    ACTIVITY;
+
+    public static ItemSort of(String name) {
+        try {
+            return ItemSort.valueOf(name);
+        } catch (IllegalArgumentException exception) {
+            throw new CustomValidationException("Unknown sort: " + name);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ru.practicum.shareit.item.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/*
+ * Статистика вещи для сортировки по популярности: число комментариев, число бронирований (включая архивные,
+ * в любом статусе) и момент последней активности - комментария, бронирования или подтверждения бронирования.
+ * Обновляется ItemStatsUpdater в транзакциях, которые меняют комментарии и бронирования, расхождения
+ * (например, после каскадного удаления пользователей) исправляет ItemStatsRepairJob.
+ */
+@Entity
+@Table(name = "item_stats")
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+public class ItemStats {
+    @Id
+    @Column(name = "item_id")
+    private Long itemId;
+
+    @Column(name = "comments_count")
+    private long commentsCount;
+
+    @Column(name = "bookings_count")
+    private long bookingsCount;
+
+    @Column(name = "last_activity")
+    private LocalDateTime lastActivity;
+
+    public ItemStats(Long itemId) {
+        this.itemId = itemId;
+    }
+}
@@ -0,0 +1,81 @@
+package ru.practicum.shareit.item.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingEventDto;
+import ru.practicum.shareit.booking.service.BookingEventListener;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDtoOut;
+import ru.practicum.shareit.util.transaction.AfterCommit;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/*
+ * Кэш занятости вещей. Окна одной вещи хранятся в общей записи, поэтому сброс вещи - одно удаление.
+ * Чтение получает запись до обращения к базе: если вещь сброшена во время чтения, результат попадет
+ * в уже удаленную запись и не будет виден следующим чтениям. Экземпляр, изменивший бронирования, сбрасывает
+ * вещь сразу после фиксации, остальные - по ленте отправленных событий (BookingEventListener), то есть с
+ * задержкой диспетчера и опроса. Запись живет не дольше ttl, что покрывает изменения бронирований без событий
+ * (например, каскадное удаление пользователя).
+ */
+@Component
+public class ItemAvailabilityCache implements BookingEventListener {
+    private final Cache<Long, Map<Window, ItemAvailabilityDtoOut>> windowsByItemId;
+    private final int maxWindowsPerItem;
+
+    public ItemAvailabilityCache(
+            @Value("${shareit.item-availability.cache.max-items:10000}") long maxItems,
+            @Value("${shareit.item-availability.cache.ttl-seconds:600}") long ttlSeconds,
+            @Value("${shareit.item-availability.cache.max-windows-per-item:32}") int maxWindowsPerItem) {
+        this.windowsByItemId = Caffeine.newBuilder()
+                .maximumSize(maxItems)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.maxWindowsPerItem = maxWindowsPerItem;
+    }
+
+    public ItemAvailabilityDtoOut get(long itemId, LocalDateTime from, LocalDateTime to,
+                                      Supplier<ItemAvailabilityDtoOut> loader) {
+        Map<Window, ItemAvailabilityDtoOut> windows = windowsByItemId.get(itemId, id -> new ConcurrentHashMap<>());
+        Window window = new Window(from, to);
+        ItemAvailabilityDtoOut availability = windows.get(window);
+        if (Objects.nonNull(availability)) {
+            return availability;
+        }
+        availability = loader.get();
+        if (windows.size() < maxWindowsPerItem) {
+            windows.put(window, availability);
+        }
+        return availability;
+    }
+
+    // Сбрасывает занятость вещи после фиксации транзакции, изменившей ее бронирования
+    public void invalidateAfterCommit(long itemId) {
+        AfterCommit.run(() -> windowsByItemId.invalidate(itemId));
+    }
+
+    // Любое событие бронирования меняет занятость вещи, в том числе если оно пришло с другого экземпляра
+    @Override
+    public void onDispatched(List<BookingEventDto> events) {
+        windowsByItemId.invalidateAll(events.stream()
+                .map(BookingEventDto::getItemId)
+                .collect(Collectors.toSet()));
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Window {
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+    }
+}
@@ -0,0 +1,107 @@
+package ru.practicum.shareit.item.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingEventDto;
+import ru.practicum.shareit.booking.model.BookingEventType;
+import ru.practicum.shareit.booking.service.BookingEventListener;
+import ru.practicum.shareit.item.dto.ItemDtoOutExtended;
+import ru.practicum.shareit.util.transaction.AfterCommit;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/*
+ * Кэш ItemDtoOutExtended для getById: на вещь одна запись с представлением для владельца (с lastBooking и
+ * nextBooking) и для остальных пользователей. Представление владельца действительно до начала nextBooking:
+ * с этого момента nextBooking становится lastBooking. Чтение получает запись до обращения к базе, поэтому
+ * результат чтения, пересекшегося со сбросом, попадает в уже удаленную запись. Экземпляр, обработавший
+ * изменение, сбрасывает запись после фиксации. Подтверждения бронирований на других экземплярах сбрасывают ее
+ * по ленте отправленных событий (BookingEventListener). Для изменений вещи и новых комментариев на других
+ * экземплярах ленты нет: там запись остается устаревшей до истечения ttl, поэтому ttl короткий. Он же
+ * ограничивает жизнь записи при изменениях в обход сервисов (каскадное удаление пользователей).
+ */
+@Component
+public class ItemDetailsCache implements BookingEventListener {
+    private final Cache<Long, Entry> entries;
+
+    public ItemDetailsCache(@Value("${shareit.item-details.cache.max-items:10000}") long maxItems,
+                            @Value("${shareit.item-details.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxItems)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public Entry entry(long itemId) {
+        return entries.get(itemId, id -> new Entry());
+    }
+
+    // После изменения вещи или комментариев сбрасываются оба представления
+    public void invalidateAfterCommit(long itemId) {
+        AfterCommit.run(() -> entries.invalidate(itemId));
+    }
+
+    public void invalidateAfterCommit(Collection<Long> itemIds) {
+        List<Long> ids = List.copyOf(itemIds);
+        AfterCommit.run(() -> entries.invalidateAll(ids));
+    }
+
+    // Подтвержденное бронирование может стать lastBooking или nextBooking вещи
+    @Override
+    public void onDispatched(List<BookingEventDto> events) {
+        entries.invalidateAll(events.stream()
+                .filter(event -> BookingEventType.APPROVED.equals(event.getType()))
+                .map(BookingEventDto::getItemId)
+                .collect(Collectors.toSet()));
+    }
+
+    public static class Entry {
+        private volatile Long ownerId;
+        private volatile ItemDtoOutExtended publicView;
+        private volatile OwnerView ownerView;
+
+        // Представление для пользователя или null, если его нужно собрать заново
+        public ItemDtoOutExtended find(long userId, LocalDateTime now) {
+            Long owner = ownerId;
+            if (Objects.isNull(owner)) {
+                return null;
+            }
+            if (owner != userId) {
+                return publicView;
+            }
+            OwnerView view = ownerView;
+            return Objects.nonNull(view) && view.isValidAt(now) ? view.getItem() : null;
+        }
+
+        public void putPublicView(long ownerId, ItemDtoOutExtended item) {
+            this.publicView = item;
+            this.ownerId = ownerId;
+        }
+
+        public void putOwnerView(long ownerId, ItemDtoOutExtended item) {
+            this.ownerView = new OwnerView(item, Objects.isNull(item.getNextBooking()) ?
+                    null : item.getNextBooking().getStart());
+            this.ownerId = ownerId;
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class OwnerView {
+        private final ItemDtoOutExtended item;
+        private final LocalDateTime validUntil;
+
+        boolean isValidAt(LocalDateTime now) {
+            return Objects.isNull(validUntil) || now.isBefore(validUntil);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.shareit.item.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.util.export.NdjsonWriter;
+
+import java.io.OutputStream;
+import java.util.stream.Stream;
+
+/*
+ * Выгрузка вещей владельца в NDJSON в формате POST /items/import. Строки читаются курсором базы
+ * и сразу пишутся в ответ, сущности в контекст персистентности не загружаются.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class ItemExporter {
+    private final ItemRepository itemRepository;
+    private final ObjectMapper objectMapper;
+
+    // Вызывается из потока записи ответа, поэтому открывает собственную транзакцию
+    @Transactional(readOnly = true)
+    public void writeItems(long ownerId, OutputStream out) {
+        NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+        try (Stream<ItemDto> items = itemRepository.streamDtoByOwnerId(ownerId)) {
+            items.forEach(writer::write);
+        }
+        log.debug("Export items of user id={}", ownerId);
+    }
+}
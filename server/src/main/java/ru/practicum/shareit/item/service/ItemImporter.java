@@ -0,0 +1,140 @@
+package ru.practicum.shareit.item.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.exception.CustomValidationException;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemDtoMapper;
+import ru.practicum.shareit.item.dto.ItemImportDtoOut;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemNameIndex;
+import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.item.storage.ItemSearchEngine;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.service.ItemRequestFeedCache;
+import ru.practicum.shareit.request.service.ItemRequestMatcher;
+import ru.practicum.shareit.request.storage.ItemRequestRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.storage.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+ * Создает вещи из строк импорта пачками: одна транзакция и один saveAll на пачку. Идентификаторы вещей
+ * берутся из последовательности пулами, поэтому вставки уходят пакетами hibernate.jdbc.batch_size.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class ItemImporter {
+    // Длины столбцов items.name и items.description
+    private static final int NAME_MAX_LENGTH = 255;
+    private static final int DESCRIPTION_MAX_LENGTH = 512;
+
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    private final ItemRequestRepository itemRequestRepository;
+    private final ItemDtoMapper itemDtoMapper;
+    private final ObjectMapper objectMapper;
+    private final ItemStatsUpdater itemStatsUpdater;
+    private final ItemSearchEngine itemSearchEngine;
+    private final ItemSearchCache itemSearchCache;
+    private final ItemNameIndex itemNameIndex;
+    private final ItemRequestMatcher itemRequestMatcher;
+    private final ItemRequestFeedCache itemRequestFeedCache;
+
+    // Те же проверки, что у ItemDto в gateway для POST /items, и длины столбцов: строка, не влезающая в столбец,
+    // иначе отклоняется базой вместе со всей пачкой
+    public Line parse(int number, String json) {
+        ItemDto dto;
+        try {
+            dto = objectMapper.readValue(json, ItemDto.class);
+        } catch (JsonProcessingException e) {
+            throw new CustomValidationException("Invalid item JSON: " + e.getOriginalMessage());
+        }
+        if (Objects.isNull(dto.getName()) || dto.getName().isBlank()) {
+            throw new CustomValidationException("Item name must not be blank");
+        }
+        if (Objects.isNull(dto.getDescription()) || dto.getDescription().isBlank()) {
+            throw new CustomValidationException("Item description must not be blank");
+        }
+        if (dto.getName().length() > NAME_MAX_LENGTH) {
+            throw new CustomValidationException("Item name must be at most " + NAME_MAX_LENGTH + " characters");
+        }
+        if (dto.getDescription().length() > DESCRIPTION_MAX_LENGTH) {
+            throw new CustomValidationException("Item description must be at most " + DESCRIPTION_MAX_LENGTH +
+                    " characters");
+        }
+        if (Objects.isNull(dto.getAvailable())) {
+            throw new CustomValidationException("Item availability must not be null");
+        }
+        return new Line(number, dto);
+    }
+
+    @Transactional
+    public List<ItemImportDtoOut> importChunk(long ownerId, List<Line> lines) {
+        User owner = userRepository.getReferenceById(ownerId);
+        Set<Long> requestIds = lines.stream()
+                .map(line -> line.getItem().getRequestId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, ItemRequest> requestsById = requestIds.isEmpty() ?
+                Map.of() :
+                itemRequestRepository.findAllById(requestIds).stream()
+                        .collect(Collectors.toMap(ItemRequest::getId, Function.identity()));
+
+        List<ItemImportDtoOut> results = new ArrayList<>(lines.size());
+        List<Item> items = new ArrayList<>(lines.size());
+        List<Integer> itemLines = new ArrayList<>(lines.size());
+        for (Line line : lines) {
+            Long requestId = line.getItem().getRequestId();
+            if (Objects.nonNull(requestId) && !requestsById.containsKey(requestId)) {
+                results.add(new ItemImportDtoOut(line.getNumber(), null,
+                        "Item request with id=" + requestId + " not found"));
+                continue;
+            }
+            Item item = itemDtoMapper.fromDto(line.getItem());
+            item.setOwner(owner);
+            item.setRequest(Objects.isNull(requestId) ? null : requestsById.get(requestId));
+            items.add(item);
+            itemLines.add(line.getNumber());
+        }
+        if (items.isEmpty()) {
+            return results;
+        }
+
+        items = itemRepository.saveAll(items);
+        itemStatsUpdater.createStats(items.stream().map(Item::getId).collect(Collectors.toList()));
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            itemSearchEngine.onSaved(item);
+            itemNameIndex.onChanged(null, item.getAvailable() ? item.getName() : null);
+            results.add(new ItemImportDtoOut(itemLines.get(i), item.getId(), null));
+        }
+        itemRequestMatcher.onItemsAdded(items);
+        itemRequestFeedCache.onItemsAdded(items.stream().map(itemDtoMapper::toDto).collect(Collectors.toList()));
+        // Сброс по словам каждой вещи обходил бы кэш на каждую вещь пачки
+        itemSearchCache.invalidateAllAfterCommit();
+        log.debug("Import {} items of user id={}", items.size(), ownerId);
+        return results;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Line {
+        private final int number;
+        private final ItemDto item;
+    }
+}
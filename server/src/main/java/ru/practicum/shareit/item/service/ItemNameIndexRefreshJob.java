@@ -0,0 +1,22 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.storage.ItemNameIndex;
+
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class ItemNameIndexRefreshJob {
+    private final ItemNameIndex itemNameIndex;
+
+    // Подсказки могут отставать от изменений других экземпляров сервиса не больше чем на интервал перечитывания
+    @Scheduled(initialDelayString = "${shareit.item-names.refresh-delay-ms:300000}",
+            fixedDelayString = "${shareit.item-names.refresh-delay-ms:300000}")
+    public void refresh() {
+        log.debug("Reloaded {} item names into suggestion index", itemNameIndex.reload());
+    }
+}
@@ -0,0 +1,177 @@
+package ru.practicum.shareit.item.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSort;
+import ru.practicum.shareit.item.storage.SearchTokens;
+import ru.practicum.shareit.util.transaction.AfterCommit;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/*
+ * Кэш результатов поиска вещей по нормализованному запросу (слова SearchTokens), порядку и странице.
+ * Вес записи - число вещей в ней плюс один, вытеснение W-TinyLFU по суммарному весу, метрики cache.* с тегом
+ * cache=itemSearch. При изменении вещи сбрасываются запросы, которым вещь соответствовала до или после изменения
+ * (каждое слово запроса - префикс какого-нибудь слова вещи). Запросы находятся по индексу слово -> ключи: для
+ * каждого префикса слов вещи, а не перебором всего кэша.
+ * Сброс локальный: ленты изменений вещей нет, поэтому на других экземплярах сервиса результаты (например, вещь,
+ * ставшая недоступной) остаются в кэше до истечения shareit.item-search.cache.ttl-seconds.
+ * Результат, вычисленный во время сброса, не кэшируется: его могли прочитать до фиксации изменения.
+ */
+@Component
+public class ItemSearchCache {
+    private static final String CACHE_NAME = "itemSearch";
+    // Ключ запроса без слов: ему соответствует любая вещь со словами
+    private static final String ANY_TOKEN = "";
+
+    private final Cache<Key, List<ItemDto>> results;
+    private final Map<String, Set<Key>> keysByToken = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ItemSearchCache(@Value("${shareit.item-search.cache.max-weight:100000}") long maxWeight,
+                           @Value("${shareit.item-search.cache.ttl-seconds:60}") long ttlSeconds,
+                           MeterRegistry meterRegistry) {
+        this.results = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Key key, List<ItemDto> items) -> items.size() + 1)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                // Вызывается атомарно с вытеснением, поэтому не удалит из индекса ключ, записанный заново
+                .evictionListener(this::onEviction)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, CACHE_NAME);
+    }
+
+    // Порядок по статистике вещей может отставать от нее на ttl-seconds
+    public List<ItemDto> get(String text, ItemSort sort, Pageable pageable, Supplier<List<ItemDto>> loader) {
+        Key key = new Key(SearchTokens.of(text), sort, pageable.getOffset(), pageable.getPageSize());
+        List<ItemDto> items = results.getIfPresent(key);
+        if (Objects.nonNull(items)) {
+            return items;
+        }
+        long version = invalidations.get();
+        List<ItemDto> loaded = loader.get();
+        /*
+         * Ключ попадает в индекс до проверки версии: сброс, начатый после проверки, найдет его в индексе и удалит
+         * запись, а запись, прочитанная до начала сброса, не кэшируется
+         */
+        results.asMap().compute(key, (k, cached) -> {
+            index(k);
+            if (invalidations.get() == version) {
+                return loaded;
+            }
+            if (Objects.isNull(cached)) {
+                unindex(k);
+            }
+            return cached;
+        });
+        return loaded;
+    }
+
+    // Тексты - название и описание вещи до и после изменения, null, если вещь тогда не могла быть найдена
+    public void invalidateAfterCommit(String oldText, String newText) {
+        List<String> oldTerms = Objects.isNull(oldText) ? List.of() : SearchTokens.of(oldText);
+        List<String> newTerms = Objects.isNull(newText) ? List.of() : SearchTokens.of(newText);
+        if (oldTerms.isEmpty() && newTerms.isEmpty()) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            invalidations.incrementAndGet();
+            Set<String> prefixes = prefixes(oldTerms, newTerms);
+            invalidate(prefixes.stream()
+                    .map(keysByToken::get)
+                    .filter(Objects::nonNull)
+                    .flatMap(Set::stream)
+                    .filter(key -> key.matches(oldTerms) || key.matches(newTerms))
+                    .collect(Collectors.toSet()));
+        });
+    }
+
+    public void invalidateAllAfterCommit() {
+        AfterCommit.run(() -> {
+            invalidations.incrementAndGet();
+            invalidate(keysByToken.values().stream()
+                    .flatMap(Set::stream)
+                    .collect(Collectors.toSet()));
+        });
+    }
+
+    private void invalidate(Collection<Key> keys) {
+        keys.forEach(key -> {
+            unindex(key);
+            results.invalidate(key);
+        });
+    }
+
+    private void onEviction(Key key, List<ItemDto> items, RemovalCause cause) {
+        if (Objects.nonNull(key)) {
+            unindex(key);
+        }
+    }
+
+    private void index(Key key) {
+        key.indexTokens().forEach(token -> keysByToken.compute(token, (t, keys) -> {
+            Set<Key> tokenKeys = Objects.isNull(keys) ? ConcurrentHashMap.newKeySet() : keys;
+            tokenKeys.add(key);
+            return tokenKeys;
+        }));
+    }
+
+    private void unindex(Key key) {
+        key.indexTokens().forEach(token -> keysByToken.computeIfPresent(token, (t, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        }));
+    }
+
+    // Слова запросов, которые могут соответствовать вещи: все префиксы ее слов и пустой запрос
+    private static Set<String> prefixes(List<String> oldTerms, List<String> newTerms) {
+        Set<String> prefixes = new HashSet<>();
+        prefixes.add(ANY_TOKEN);
+        for (List<String> terms : List.of(oldTerms, newTerms)) {
+            for (String term : terms) {
+                for (int length = 1; length <= term.length(); length++) {
+                    prefixes.add(term.substring(0, length));
+                }
+            }
+        }
+        return prefixes;
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Key {
+        private final List<String> tokens;
+        private final ItemSort sort;
+        private final long offset;
+        private final int size;
+
+        boolean matches(List<String> terms) {
+            return !terms.isEmpty() && tokens.stream()
+                    .allMatch(token -> terms.stream().anyMatch(term -> term.startsWith(token)));
+        }
+
+        List<String> indexTokens() {
+            return tokens.isEmpty() ? List.of(ANY_TOKEN) : tokens;
+        }
+    }
+}
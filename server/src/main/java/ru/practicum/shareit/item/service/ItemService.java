@@ -1,19 +1,35 @@
 package ru.practicum.shareit.item.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.item.dto.*;
+import ru.practicum.shareit.util.pagination.SeekCursor;
 
+import java.io.BufferedReader;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemService {
     ItemDto add(ItemDto dto, long userId);
 
+    List<ItemImportDtoOut> importItems(BufferedReader reader, long userId);
+
+    StreamingResponseBody exportItems(long userId);
+
     ItemDto patch(long itemId, ItemPatchDto dto, long userId);
 
     ItemDtoOutExtended getById(long id, long userId);
 
-    List<ItemDtoOutExtended> getAll(long userId, long from, int size);
+    List<ItemDtoOutExtended> getAll(long userId, ItemSort sort, long from, int size);
+
+    List<ItemDto> search(String text, ItemSort sort, long from, int size);
+
+    List<String> suggest(String prefix, int size);
+
+    ItemAvailabilityDtoOut getAvailability(long itemId, LocalDateTime from, LocalDateTime to, long userId);
+
+    List<CommentDtoOut> getComments(long itemId, long userId, int size);
 
-    List<ItemDto> search(String text, long from, int size);
+    List<CommentDtoOut> getComments(long itemId, long userId, SeekCursor cursor, int size);
 
     CommentDtoOut addComment(CommentDtoIn dto, long itemId, long userId);
 }
@@ -3,13 +3,21 @@ package ru.practicum.shareit.item.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.JpaSort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingRecord;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.storage.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.storage.BookingInterval;
 import ru.practicum.shareit.booking.storage.BookingRepository;
 import ru.practicum.shareit.exception.AuthenticationErrorException;
 import ru.practicum.shareit.exception.CustomValidationException;
@@ -17,14 +25,27 @@ import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.dto.*;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemStats;
 import ru.practicum.shareit.item.storage.CommentRepository;
+import ru.practicum.shareit.item.storage.ItemNameIndex;
 import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.item.storage.ItemSearchEngine;
+import ru.practicum.shareit.item.storage.ItemStatsRepository;
 import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.service.ItemRequestFeedCache;
+import ru.practicum.shareit.request.service.ItemRequestMatcher;
 import ru.practicum.shareit.request.storage.ItemRequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.storage.UserRepository;
+import ru.practicum.shareit.util.pagination.SeekCursor;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -36,15 +57,42 @@ import java.util.stream.Collectors;
 @Slf4j
 @Transactional(readOnly = true)
 public class ItemServiceImpl implements ItemService {
+    private static final Sort COMMENTS_SORT = Sort.by(Sort.Direction.DESC, "created", "id");
+    private static final List<BookingStatus> AVAILABILITY_BLOCKING_STATUSES = List.of(BookingStatus.WAITING,
+            BookingStatus.APPROVED);
 
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
     private final BookingRepository bookingRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
     private final CommentRepository commentRepository;
     private final ItemRequestRepository itemRequestRepository;
     private final ItemDtoMapper itemDtoMapper;
     private final ItemPatchDtoMapper itemPatchDtoMapper;
     private final CommentDtoMapper commentDtoMapper;
+    private final ItemAvailabilityCache itemAvailabilityCache;
+    private final ItemSearchEngine itemSearchEngine;
+    private final ItemSearchCache itemSearchCache;
+    private final ItemNameIndex itemNameIndex;
+    private final ItemDetailsCache itemDetailsCache;
+    private final ItemStatsRepository itemStatsRepository;
+    private final ItemStatsUpdater itemStatsUpdater;
+    private final ItemImporter itemImporter;
+    private final ItemExporter itemExporter;
+    private final ItemRequestMatcher itemRequestMatcher;
+    private final ItemRequestFeedCache itemRequestFeedCache;
+
+    @Value("${shareit.item.embedded-comments:10}")
+    private int embeddedCommentsLimit;
+
+    @Value("${shareit.item-search.max-sorted-matches:1000}")
+    private int maxSortedSearchMatches;
+
+    @Value("${shareit.item-import.chunk-size:500}")
+    private int importChunkSize;
+
+    @Value("${shareit.item-availability.max-days:366}")
+    private long availabilityMaxDays;
 
     @Override
     @Transactional
@@ -56,8 +104,80 @@ public class ItemServiceImpl implements ItemService {
         item.setOwner(owner);
         item.setRequest(itemRequest);
         item = itemRepository.save(item);
+        itemStatsUpdater.createStats(item.getId());
+        itemSearchEngine.onSaved(item);
+        itemSearchCache.invalidateAfterCommit(null, searchText(item));
+        itemNameIndex.onChanged(null, item.getAvailable() ? item.getName() : null);
+        itemRequestMatcher.onItemAdded(item);
+        ItemDto added = itemDtoMapper.toDto(item);
+        itemRequestFeedCache.onItemsAdded(List.of(added));
         log.debug("Add item {}", item);
-        return itemDtoMapper.toDto(item);
+        return added;
+    }
+
+    // Строки читаются из потока по мере поступления, в памяти держится только текущая пачка и отчет
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<ItemImportDtoOut> importItems(BufferedReader reader, long userId) {
+        getUser(userId);
+        List<ItemImportDtoOut> results = new ArrayList<>();
+        List<ItemImporter.Line> chunk = new ArrayList<>(importChunkSize);
+        int number = 0;
+        try {
+            String json;
+            while (Objects.nonNull(json = reader.readLine())) {
+                number++;
+                if (json.isBlank()) {
+                    continue;
+                }
+                try {
+                    chunk.add(itemImporter.parse(number, json));
+                } catch (CustomValidationException e) {
+                    results.add(new ItemImportDtoOut(number, null, e.getMessage()));
+                }
+                if (chunk.size() == importChunkSize) {
+                    results.addAll(importChunk(userId, chunk));
+                    chunk = new ArrayList<>(importChunkSize);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(importChunk(userId, chunk));
+        }
+        results.sort(Comparator.comparing(ItemImportDtoOut::getLine));
+        log.debug("Import {} lines for user id={}", number, userId);
+        return results;
+    }
+
+    // Пользователь проверяется до начала ответа, сами вещи пишутся уже при передаче ответа
+    @Override
+    public StreamingResponseBody exportItems(long userId) {
+        getUser(userId);
+        return out -> itemExporter.writeItems(userId, out);
+    }
+
+    /*
+     * Ошибка базы откатывает только свою пачку, остальные пачки уже зафиксированы или еще будут импортированы.
+     * Строки откатившейся пачки импортируются повторно по одной, чтобы ошибка одной строки не отклоняла остальные.
+     */
+    private List<ItemImportDtoOut> importChunk(long userId, List<ItemImporter.Line> chunk) {
+        try {
+            return itemImporter.importChunk(userId, chunk);
+        } catch (DataAccessException e) {
+            log.warn("Import chunk of user id={} failed, retrying {} lines one by one", userId, chunk.size(), e);
+        }
+        List<ItemImportDtoOut> results = new ArrayList<>(chunk.size());
+        for (ItemImporter.Line line : chunk) {
+            try {
+                results.addAll(itemImporter.importChunk(userId, List.of(line)));
+            } catch (DataAccessException e) {
+                log.warn("Import line {} of user id={} failed", line.getNumber(), userId, e);
+                results.add(new ItemImportDtoOut(line.getNumber(), null, "Item import failed"));
+            }
+        }
+        return results;
     }
 
     @Override
@@ -67,7 +187,23 @@ public class ItemServiceImpl implements ItemService {
         if (!item.getOwner().getId().equals(userId)) {
             throw new AuthenticationErrorException("User id=" + userId + " is not owner of item id=" + itemId);
         }
+        String oldSearchText = searchText(item);
+        String oldName = item.getAvailable() ? item.getName() : null;
         itemPatchDtoMapper.updateWithPatchDto(item, dto);
+        itemDetailsCache.invalidateAfterCommit(itemId);
+        String newSearchText = searchText(item);
+        if (!Objects.equals(oldSearchText, newSearchText)) {
+            itemSearchEngine.onSaved(item);
+            itemSearchCache.invalidateAfterCommit(oldSearchText, newSearchText);
+            itemRequestMatcher.onItemChanged(item);
+        }
+        String newName = item.getAvailable() ? item.getName() : null;
+        if (!Objects.equals(oldName, newName)) {
+            itemNameIndex.onChanged(oldName, newName);
+        }
+        if (Objects.nonNull(item.getRequest())) {
+            itemRequestFeedCache.invalidateAfterCommit();
+        }
         log.debug("Patch item {}", item);
         return itemDtoMapper.toDto(item);
     }
@@ -75,60 +211,147 @@ public class ItemServiceImpl implements ItemService {
     @Override
     public ItemDtoOutExtended getById(long id, long userId) {
         getUser(userId);
+        ItemDetailsCache.Entry cached = itemDetailsCache.entry(id);
+        ItemDtoOutExtended dto = cached.find(userId, LocalDateTime.now());
+        if (Objects.nonNull(dto)) {
+            return dto;
+        }
         Item item = getItem(id);
-        return item.getOwner().getId().equals(userId) ?
-                formDtoExtendedWithBookings(item) :
-                formDtoExtended(item);
+        long ownerId = item.getOwner().getId();
+        if (ownerId == userId) {
+            dto = formDtoExtendedWithBookings(item);
+            cached.putOwnerView(ownerId, dto);
+        } else {
+            dto = formDtoExtended(item);
+            cached.putPublicView(ownerId, dto);
+        }
+        return dto;
     }
 
     @Override
-    public List<ItemDtoOutExtended> getAll(long userId, long from, int size) {
+    public List<ItemDtoOutExtended> getAll(long userId, ItemSort sort, long from, int size) {
         User owner = getUser(userId);
-        Pageable pageable = PageRequest.of((int) (from / size), size, Sort.by(Sort.Direction.ASC, "id"));
-        List<Item> items = itemRepository.findAllByOwner(owner, pageable);
-        List<Comment> comments = commentRepository.findAllByItemIn(items);
-        Map<Long, List<Comment>> commentsByItemIds = comments.stream()
-                .collect(Collectors.groupingBy(comment -> comment.getItem().getId(), Collectors.toList()));
+        int page = (int) (from / size);
+        List<Item> items = ItemSort.DEFAULT.equals(sort) ?
+                itemRepository.findAllByOwner(owner, PageRequest.of(page, size, Sort.by(Sort.Direction.ASC, "id"))) :
+                itemRepository.findAllByOwnerJoinStats(owner, PageRequest.of(page, size, statsSort(sort)));
+        Map<Long, List<Comment>> commentsByItemIds = new HashMap<>();
+        Map<Long, ItemStats> statsByItemIds = new HashMap<>();
 
         LocalDateTime now = LocalDateTime.now();
-        List<Booking> lastBookings = bookingRepository.findAllByItemInAndStartLessThanEqualAndStatusIs(
-                items, now, BookingStatus.APPROVED, Sort.by(Sort.Direction.DESC, "start"));
-        Map<Long, Booking> lastBookingsByItemIds = lastBookings.stream()
-                .collect(Collectors.toMap(booking -> booking.getItem().getId(), Function.identity(),
-                        (booking1, booking2) -> booking1));
-        List<Booking> nextBookings = bookingRepository.findAllByItemInAndStartAfterAndStatusIs(
-                items, now, BookingStatus.APPROVED, Sort.by(Sort.Direction.ASC, "start"));
-        Map<Long, Booking> nextBookingsByItemIds = nextBookings.stream()
-                .collect(Collectors.toMap(booking -> booking.getItem().getId(), Function.identity(),
-                        (booking1, booking2) -> booking1));
+        Map<Long, BookingRecord> lastBookingsByItemIds = new HashMap<>();
+        Map<Long, BookingRecord> nextBookingsByItemIds = new HashMap<>();
+        if (!items.isEmpty()) {
+            List<Long> itemIds = items.stream().map(Item::getId).collect(Collectors.toList());
+            commentRepository.findLatestByItemIds(itemIds, embeddedCommentsLimit).forEach(comment ->
+                    commentsByItemIds.computeIfAbsent(comment.getItem().getId(), id -> new ArrayList<>()).add(comment));
+            itemStatsRepository.findAllByItemIdIn(itemIds)
+                    .forEach(stats -> statsByItemIds.put(stats.getItemId(), stats));
+            for (Booking booking : bookingRepository.findLastAndNextByItemIds(
+                    itemIds, BookingStatus.APPROVED.name(), now)) {
+                Map<Long, BookingRecord> target = booking.getStart().isAfter(now) ?
+                        nextBookingsByItemIds : lastBookingsByItemIds;
+                target.put(booking.getItem().getId(), booking);
+            }
+            // Последнее бронирование ищем в архиве только для вещей, у которых его нет в оперативной таблице
+            List<Long> itemIdsWithoutLast = itemIds.stream()
+                    .filter(itemId -> !lastBookingsByItemIds.containsKey(itemId))
+                    .collect(Collectors.toList());
+            if (!itemIdsWithoutLast.isEmpty()) {
+                archivedBookingRepository.findLastByItemIds(itemIdsWithoutLast, BookingStatus.APPROVED.name(), now)
+                        .forEach(booking -> lastBookingsByItemIds.put(booking.getItem().getId(), booking));
+            }
+        }
 
         return items.stream()
                 .map(item -> itemDtoMapper.toDtoExtended(item, commentsByItemIds.get(item.getId()),
+                        statsByItemIds.getOrDefault(item.getId(), new ItemStats(item.getId())),
                         lastBookingsByItemIds.get(item.getId()), nextBookingsByItemIds.get(item.getId())))
                 .collect(Collectors.toList());
     }
 
     @Override
-    public List<ItemDto> search(String text, long from, int size) {
+    public List<ItemDto> search(String text, ItemSort sort, long from, int size) {
         Pageable pageable = PageRequest.of((int) (from / size), size);
-        return itemRepository.search(text.toLowerCase(), pageable).stream()
-                .map(itemDtoMapper::toDto)
+        return itemSearchCache.get(text, sort, pageable, () -> ItemSort.DEFAULT.equals(sort) ?
+                findAllDtoInOrder(itemSearchEngine.search(text, pageable)) :
+                findBySearchEngineSortedByStats(text, sort, pageable));
+    }
+
+    // По статистике упорядочиваются не больше shareit.item-search.max-sorted-matches самых релевантных вещей
+    private List<ItemDto> findBySearchEngineSortedByStats(String text, ItemSort sort, Pageable pageable) {
+        List<Long> matchedIds = itemSearchEngine.search(text, PageRequest.of(0, maxSortedSearchMatches));
+        if (matchedIds.isEmpty()) {
+            return List.of();
+        }
+        return findAllDtoInOrder(itemRepository.findIdsByIdInJoinStats(matchedIds,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), statsSort(sort))));
+    }
+
+    private List<ItemDto> findAllDtoInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ItemDto> itemsById = itemRepository.findAllDtoByIdIn(ids).stream()
+                .collect(Collectors.toMap(ItemDto::getId, Function.identity()));
+        return ids.stream()
+                .map(itemsById::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public ItemAvailabilityDtoOut getAvailability(long itemId, LocalDateTime from, LocalDateTime to, long userId) {
+        if (!to.isAfter(from)) {
+            throw new CustomValidationException("Availability window end must be after start");
+        }
+        if (from.plusDays(availabilityMaxDays).isBefore(to)) {
+            throw new CustomValidationException("Availability window must not exceed " + availabilityMaxDays + " days");
+        }
+        getUser(userId);
+        getItem(itemId);
+        return itemAvailabilityCache.get(itemId, from, to, () -> mergeIntervals(itemId, from, to,
+                bookingRepository.findIntervalsByItemIdAndStatusIn(itemId, AVAILABILITY_BLOCKING_STATUSES, from, to)));
+    }
+
+    // Подсказки строятся по индексу в памяти, транзакция и соединение с базой не нужны
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<String> suggest(String prefix, int size) {
+        return itemNameIndex.suggest(prefix, size);
+    }
+
+    @Override
+    public List<CommentDtoOut> getComments(long itemId, long userId, int size) {
+        getUser(userId);
+        getItem(itemId);
+        return commentDtoMapper.toDto(commentRepository.findByItemId(itemId, PageRequest.of(0, size, COMMENTS_SORT)));
+    }
+
+    @Override
+    public List<CommentDtoOut> getComments(long itemId, long userId, SeekCursor cursor, int size) {
+        getUser(userId);
+        getItem(itemId);
+        return commentDtoMapper.toDto(commentRepository.findByItemIdSeek(itemId, cursor.getTime(), cursor.getId(),
+                PageRequest.of(0, size, COMMENTS_SORT)));
+    }
+
     @Override
     @Transactional
     public CommentDtoOut addComment(CommentDtoIn dto, long itemId, long userId) {
         Item item = getItem(itemId);
         User user = getUser(userId);
-        bookingRepository.findFirstByItemAndBookerAndEndBefore(item, user, LocalDateTime.now())
-                .orElseThrow(() -> new CustomValidationException(
-                        "User id=" + userId + " doesnt have finished booking of item id=" + itemId));
+        if (!bookingRepository.existsByItemAndBookerAndEndBefore(item, user, LocalDateTime.now())) {
+            throw new CustomValidationException(
+                    "User id=" + userId + " doesnt have finished booking of item id=" + itemId);
+        }
         Comment comment = commentDtoMapper.fromDto(dto);
         comment.setItem(item);
         comment.setAuthor(user);
         comment.setCreated(LocalDateTime.now());
         comment = commentRepository.save(comment);
+        itemStatsUpdater.onCommentAdded(comment);
+        itemDetailsCache.invalidateAfterCommit(itemId);
         log.debug("Add comment {}", comment);
         return commentDtoMapper.toDto(comment);
     }
@@ -148,22 +371,97 @@ public class ItemServiceImpl implements ItemService {
                 .orElseThrow(() -> new NotFoundException("Item request with id=" + requestId + " not found"));
     }
 
+    // Интервалы упорядочены по началу: пересекающиеся и смежные сливаются в один занятый промежуток,
+    // промежутки между занятыми - свободные
+    private static ItemAvailabilityDtoOut mergeIntervals(long itemId, LocalDateTime from, LocalDateTime to,
+                                                         List<BookingInterval> intervals) {
+        List<TimeSlotDto> free = new ArrayList<>();
+        List<TimeSlotDto> busy = new ArrayList<>();
+        LocalDateTime freeStart = from;
+        LocalDateTime busyStart = null;
+        LocalDateTime busyEnd = null;
+        for (BookingInterval interval : intervals) {
+            LocalDateTime start = interval.getStart().isBefore(from) ? from : interval.getStart();
+            LocalDateTime end = interval.getEnd().isAfter(to) ? to : interval.getEnd();
+            if (Objects.nonNull(busyEnd) && !start.isAfter(busyEnd)) {
+                if (end.isAfter(busyEnd)) {
+                    busyEnd = end;
+                }
+                continue;
+            }
+            if (Objects.nonNull(busyEnd)) {
+                busy.add(new TimeSlotDto(busyStart, busyEnd));
+                freeStart = busyEnd;
+            }
+            if (start.isAfter(freeStart)) {
+                free.add(new TimeSlotDto(freeStart, start));
+            }
+            busyStart = start;
+            busyEnd = end;
+        }
+        if (Objects.nonNull(busyEnd)) {
+            busy.add(new TimeSlotDto(busyStart, busyEnd));
+            freeStart = busyEnd;
+        }
+        if (to.isAfter(freeStart)) {
+            free.add(new TimeSlotDto(freeStart, to));
+        }
+        return new ItemAvailabilityDtoOut(itemId, from, to, free, busy);
+    }
+
+    // Текст, по которому ищется вещь, или null, если недоступная вещь не попадает в результаты поиска
+    private static String searchText(Item item) {
+        return item.getAvailable() ? item.getName() + " " + item.getDescription() : null;
+    }
+
     private ItemDtoOutExtended formDtoExtended(Item item) {
-        List<Comment> comments = commentRepository.findAllByItem(item);
-        return itemDtoMapper.toDtoExtended(item, comments);
+        return itemDtoMapper.toDtoExtended(item, findLatestComments(item.getId()), findStats(item.getId()));
     }
 
     private ItemDtoOutExtended formDtoExtendedWithBookings(Item item) {
         LocalDateTime now = LocalDateTime.now();
-        Booking lastBooking = bookingRepository
-                .findFirstByItemAndStartLessThanEqualAndStatusIs(
-                        item, now, BookingStatus.APPROVED, Sort.by(Sort.Direction.DESC, "start"))
+        Sort lastSort = Sort.by(Sort.Direction.DESC, "start");
+        BookingRecord lastBooking = bookingRepository
+                .findFirstByItemAndStartLessThanEqualAndStatusIs(item, now, BookingStatus.APPROVED, lastSort)
+                .map(BookingRecord.class::cast)
+                .or(() -> archivedBookingRepository
+                        .findFirstByItemAndStartLessThanEqualAndStatusIs(item, now, BookingStatus.APPROVED, lastSort))
                 .orElse(null);
         Booking nextBooking = bookingRepository
                 .findFirstByItemAndStartAfterAndStatusIs(
                         item, now, BookingStatus.APPROVED, Sort.by(Sort.Direction.ASC, "start"))
                 .orElse(null);
-        List<Comment> comments = commentRepository.findAllByItem(item);
-        return itemDtoMapper.toDtoExtended(item, comments, lastBooking, nextBooking);
+        return itemDtoMapper.toDtoExtended(item, findLatestComments(item.getId()), findStats(item.getId()),
+                lastBooking, nextBooking);
+    }
+
+    private ItemStats findStats(long itemId) {
+        return itemStatsRepository.findById(itemId).orElseGet(() -> new ItemStats(itemId));
+    }
+
+    // Свойства статистики указаны через алиас s из запросов ItemRepository с join ItemStats
+    private static Sort statsSort(ItemSort sort) {
+        String property;
+        switch (sort) {
+            case COMMENTS:
+                property = "s.commentsCount";
+                break;
+            case BOOKINGS:
+                property = "s.bookingsCount";
+                break;
+            case ACTIVITY:
+            default:
+                property = "s.lastActivity";
+                break;
+        }
+        // last_activity пуст до первой активности, а вещь без строки статистики дает null во всех полях. На PostgreSQL
+        // null при DESC шел бы первым, а nullsLast() Spring Data не передает в @Query, поэтому null упорядочен явно
+        return JpaSort.unsafe(Sort.Direction.ASC, "(case when " + property + " is null then 1 else 0 end)")
+                .and(Sort.by(Sort.Direction.DESC, property))
+                .and(Sort.by(Sort.Direction.ASC, "id"));
+    }
+
+    private List<Comment> findLatestComments(long itemId) {
+        return commentRepository.findByItemId(itemId, PageRequest.of(0, embeddedCommentsLimit, COMMENTS_SORT));
     }
 }
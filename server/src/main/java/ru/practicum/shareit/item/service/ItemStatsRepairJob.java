@@ -0,0 +1,33 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class ItemStatsRepairJob {
+    private final ItemStatsRepairer itemStatsRepairer;
+
+    @Value("${shareit.item-stats.repair-batch-size:500}")
+    private int batchSize;
+
+    // Пачки пересчитываются в отдельных транзакциях, чтобы не держать долгих блокировок на item_stats
+    @Scheduled(initialDelayString = "${shareit.item-stats.repair-delay-ms:3600000}",
+            fixedDelayString = "${shareit.item-stats.repair-delay-ms:3600000}")
+    public void repair() {
+        long batches = 0;
+        Long lastId = 0L;
+        do {
+            lastId = itemStatsRepairer.repairBatch(lastId, batchSize);
+            batches++;
+        } while (Objects.nonNull(lastId));
+        log.debug("Repaired item stats in {} batches", batches);
+    }
+}
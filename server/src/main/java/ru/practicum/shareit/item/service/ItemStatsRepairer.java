@@ -0,0 +1,42 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.item.storage.ItemStatsRepository;
+
+import java.util.List;
+
+/*
+ * Пересчитывает ItemStats по comments, bookings и bookings_archive для пачки вещей, идущих по id после afterId.
+ * Недостающие строки статистики создаются.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class ItemStatsRepairer {
+    private final ItemRepository itemRepository;
+    private final ItemStatsRepository itemStatsRepository;
+    private final ItemDetailsCache itemDetailsCache;
+
+    // Одна пачка в одной транзакции, возвращает id последней вещи пачки или null, если вещей после afterId нет
+    @Transactional
+    public Long repairBatch(long afterId, int batchSize) {
+        List<Long> ids = itemRepository.findIdsByIdGreaterThan(afterId, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return null;
+        }
+        long lastId = ids.get(ids.size() - 1);
+        int created = itemStatsRepository.insertMissing(afterId, lastId);
+        if (created > 0) {
+            log.warn("Create {} missing item stats for items with id in ({}, {}]", created, afterId, lastId);
+        }
+        itemStatsRepository.recompute(afterId, lastId);
+        itemDetailsCache.invalidateAfterCommit(ids);
+        return ids.size() == batchSize ? lastId : null;
+    }
+}
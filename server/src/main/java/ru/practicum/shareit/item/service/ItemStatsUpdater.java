@@ -0,0 +1,60 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.storage.ItemStatsRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Изменяет ItemStats в транзакции, которая добавляет вещь, комментарий или бронирование
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class ItemStatsUpdater {
+    private final ItemStatsRepository itemStatsRepository;
+
+    public void createStats(long itemId) {
+        createStats(List.of(itemId));
+    }
+
+    // Вещи должны быть уже сохранены: перед native запросом Hibernate сбрасывает вставки в базу
+    public void createStats(Collection<Long> itemIds) {
+        itemStatsRepository.insertByItemIdIn(itemIds);
+    }
+
+    public void onCommentAdded(Comment comment) {
+        increment(comment.getItem().getId(), 1, 0, comment.getCreated());
+    }
+
+    // Бронирования пачки суммируются по вещам, поэтому на вещь приходится один update
+    public void onBookingsAdded(Collection<Booking> bookings) {
+        Map<Long, List<Booking>> bookingsByItemId = bookings.stream()
+                .collect(Collectors.groupingBy(booking -> booking.getItem().getId(), LinkedHashMap::new,
+                        Collectors.toList()));
+        bookingsByItemId.forEach((itemId, itemBookings) -> increment(itemId, 0, itemBookings.size(),
+                itemBookings.stream()
+                        .map(Booking::getCreated)
+                        .max(Comparator.naturalOrder())
+                        .orElseThrow()));
+    }
+
+    public void onBookingApproved(long itemId, LocalDateTime approvedAt) {
+        increment(itemId, 0, 0, approvedAt);
+    }
+
+    private void increment(long itemId, long comments, long bookings, LocalDateTime activity) {
+        if (itemStatsRepository.increment(itemId, comments, bookings, activity) == 0) {
+            log.warn("Stats of item id={} not found", itemId);
+        }
+    }
+}
@@ -1,13 +1,41 @@
 package ru.practicum.shareit.item.storage;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.item.model.Comment;
-import ru.practicum.shareit.item.model.Item;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findAllByItem(Item item);
 
-    List<Comment> findAllByItemIn(List<Item> item);
+    // Страницы комментариев вещи, новые первыми: сортировка (created, id) передается в pageable.
+    // Производный запрос по item.id присоединял бы items и фильтровал по items.id, мимо idx_comments_item_created
+    @EntityGraph(attributePaths = "author")
+    @Query(value = "select c from Comment as c where c.item.id = :itemId")
+    List<Comment> findByItemId(@Param("itemId") Long itemId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "author")
+    @Query(value = "select c from Comment as c " +
+            "where c.item.id = :itemId " +
+            "and (c.created < :cursorCreated or (c.created = :cursorCreated and c.id < :cursorId))")
+    List<Comment> findByItemIdSeek(@Param("itemId") Long itemId,
+                                   @Param("cursorCreated") LocalDateTime cursorCreated,
+                                   @Param("cursorId") Long cursorId,
+                                   Pageable pageable);
+
+    // Для каждой вещи не более limit последних комментариев
+    @Query(value = "select id, text, item_id, author_id, created " +
+            "from (select c.*, " +
+            "row_number() over (partition by c.item_id order by c.created desc, c.id desc) as rn " +
+            "from comments as c " +
+            "where c.item_id in (:itemIds)) as latest_comments " +
+            "where rn <= :limit " +
+            "order by item_id, created desc, id desc",
+            nativeQuery = true)
+    List<Comment> findLatestByItemIds(@Param("itemIds") Collection<Long> itemIds, @Param("limit") int limit);
 }
@@ -0,0 +1,163 @@
+package ru.practicum.shareit.item.storage;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.util.transaction.AfterCommit;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/*
+ * Инвертированный индекс в памяти экземпляра: слово -> вещь -> вес слова в вещи. Вес - число вхождений
+ * слова в название, умноженное на NAME_WEIGHT, плюс число вхождений в описание. Индекс заполняется при старте
+ * и обновляется после фиксации транзакций, изменивших вещи. Слова запроса ищутся как префиксы,
+ * точное совпадение слова весит вдвое больше. Предназначен для H2 и тестов.
+ */
+@Component
+@ConditionalOnProperty(name = "shareit.item-search.engine", havingValue = "in-memory")
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class InMemoryItemSearchEngine implements ItemSearchEngine {
+    private static final int NAME_WEIGHT = 2;
+    private static final Comparator<Map.Entry<Long, Integer>> RELEVANCE_ORDER =
+            Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+
+    private final ItemRepository itemRepository;
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Value("${shareit.item-search.in-memory.load-batch-size:1000}")
+    private int loadBatchSize;
+
+    @PostConstruct
+    public void load() {
+        long lastId = 0;
+        List<ItemDto> items;
+        do {
+            items = itemRepository.findAllDtoByIdGreaterThan(lastId, PageRequest.of(0, loadBatchSize));
+            for (ItemDto item : items) {
+                index(item.getId(), item.getName(), item.getDescription(), item.getAvailable());
+                lastId = item.getId();
+            }
+        } while (items.size() == loadBatchSize);
+        log.info("Loaded {} items into search index", documents.size());
+    }
+
+    @Override
+    public List<Long> search(String text, Pageable pageable) {
+        List<String> tokens = SearchTokens.of(text);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Integer> scores = null;
+        lock.readLock().lock();
+        try {
+            for (String token : tokens) {
+                Map<Long, Integer> tokenScores = new HashMap<>();
+                postings.subMap(token, true, token + Character.MAX_VALUE, false).forEach((term, weights) -> {
+                    int multiplier = term.equals(token) ? 2 : 1;
+                    weights.forEach((itemId, weight) -> tokenScores.merge(itemId, weight * multiplier, Integer::sum));
+                });
+                if (Objects.isNull(scores)) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((itemId, score) -> score + tokenScores.get(itemId));
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+            scores.keySet().removeIf(itemId -> !documents.get(itemId).isAvailable());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scores.entrySet().stream()
+                .sorted(RELEVANCE_ORDER)
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void onSaved(Item item) {
+        long itemId = item.getId();
+        String name = item.getName();
+        String description = item.getDescription();
+        boolean available = item.getAvailable();
+        AfterCommit.run(() -> index(itemId, name, description, available));
+    }
+
+    @Override
+    public void onRemoved(Collection<Long> itemIds) {
+        List<Long> ids = List.copyOf(itemIds);
+        AfterCommit.run(() -> ids.forEach(this::remove));
+    }
+
+    private void index(long itemId, String name, String description, boolean available) {
+        Map<String, Integer> weights = new HashMap<>();
+        SearchTokens.of(name).forEach(term -> weights.merge(term, NAME_WEIGHT, Integer::sum));
+        SearchTokens.of(description).forEach(term -> weights.merge(term, 1, Integer::sum));
+        lock.writeLock().lock();
+        try {
+            removeUnderLock(itemId);
+            weights.forEach((term, weight) -> postings.computeIfAbsent(term, key -> new HashMap<>())
+                    .put(itemId, weight));
+            documents.put(itemId, new Document(available, Set.copyOf(weights.keySet())));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(long itemId) {
+        lock.writeLock().lock();
+        try {
+            removeUnderLock(itemId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeUnderLock(long itemId) {
+        Document document = documents.remove(itemId);
+        if (Objects.isNull(document)) {
+            return;
+        }
+        for (String term : document.getTerms()) {
+            Map<Long, Integer> weights = postings.get(term);
+            weights.remove(itemId);
+            if (weights.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class Document {
+        private final boolean available;
+        private final Set<String> terms;
+    }
+}
@@ -0,0 +1,127 @@
+package ru.practicum.shareit.item.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.util.transaction.AfterCommit;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ * Названия доступных вещей для подсказок при вводе: название -> число доступных вещей с таким названием.
+ * Ключи упорядочены без учета регистра, поэтому названия с общим префиксом лежат подряд, и подсказка -
+ * это спуск по skip list и чтение не более size следующих ключей. Одинаковые названия хранятся один раз,
+ * на название приходится порядка 80 байт служебных структур плюс сама строка.
+ * Индекс локален для экземпляра сервиса и обновляется после фиксации транзакций, изменивших вещи. Изменения,
+ * сделанные другими экземплярами, попадают в индекс при перечитывании из базы (ItemNameIndexRefreshJob).
+ * Перечитанный индекс заменяет текущий целиком. Локальные изменения, примененные во время чтения, повторяются
+ * на новом индексе: изменение, зафиксированное перед началом чтения, может учесться дважды, но это исправит
+ * следующее перечитывание.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class ItemNameIndex {
+    private final ItemRepository itemRepository;
+    private final PlatformTransactionManager transactionManager;
+    private volatile ConcurrentNavigableMap<String, Integer> counts = newCounts();
+    // Изменения, примененные во время перечитывания индекса, null - индекс не перечитывается
+    private List<Consumer<Map<String, Integer>>> replay;
+
+    @PostConstruct
+    public void load() {
+        log.info("Loaded {} item names into suggestion index", reload());
+    }
+
+    // Названия читаются потоком из курсора, без загрузки всех вещей в память. Возвращает число названий
+    public int reload() {
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        ConcurrentNavigableMap<String, Integer> loaded = newCounts();
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<String> names = itemRepository.streamAvailableNames()) {
+                    names.forEach(name -> add(loaded, name));
+                }
+            });
+            synchronized (this) {
+                replay.forEach(change -> change.accept(loaded));
+                counts = loaded;
+            }
+        } finally {
+            synchronized (this) {
+                replay = null;
+            }
+        }
+        return loaded.size();
+    }
+
+    public List<String> suggest(String prefix, int size) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        return counts.subMap(normalized, true, normalized + Character.MAX_VALUE, false).keySet().stream()
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    // Названия вещи до и после изменения, null, если вещь тогда была недоступна или не существовала
+    public void onChanged(String oldName, String newName) {
+        AfterCommit.run(() -> apply(index -> {
+            if (Objects.nonNull(oldName)) {
+                remove(index, oldName);
+            }
+            if (Objects.nonNull(newName)) {
+                add(index, newName);
+            }
+        }));
+    }
+
+    public void onRemoved(Collection<String> names) {
+        List<String> removed = List.copyOf(names);
+        AfterCommit.run(() -> apply(index -> removed.forEach(name -> remove(index, name))));
+    }
+
+    private synchronized void apply(Consumer<Map<String, Integer>> change) {
+        change.accept(counts);
+        if (Objects.nonNull(replay)) {
+            replay.add(change);
+        }
+    }
+
+    private static void add(Map<String, Integer> counts, String name) {
+        String normalized = normalize(name);
+        if (!normalized.isEmpty()) {
+            counts.merge(normalized, 1, Integer::sum);
+        }
+    }
+
+    private static void remove(Map<String, Integer> counts, String name) {
+        counts.computeIfPresent(normalize(name), (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private static ConcurrentNavigableMap<String, Integer> newCounts() {
+        return new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
+    }
+
+    private static String normalize(String name) {
+        return name.trim().replaceAll("\\s+", " ");
+    }
+}
@@ -2,27 +2,98 @@ package ru.practicum.shareit.item.storage;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
-import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.model.User;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
 
+    // Проекция вещи сразу в ItemDto для списков только на чтение
+    String DTO_SELECT = "select new ru.practicum.shareit.item.dto.ItemDto(" +
+            "it.id, it.name, it.description, it.available, it.request.id) " +
+            "from Item as it ";
+
     List<Item> findAllByOwner(User owner, Pageable pageable);
 
-    @Query(value = "select it " +
-            "from Item as it " +
-            "where (lower(it.name) like %:text% or lower(it.description) like %:text%) and it.available=true")
-    List<Item> search(@Param("text") String textInLowerCase, Pageable pageable);
+    // Сортировка pageable может ссылаться на статистику вещи через алиас s
+    @Query(value = "select it from Item as it left join ItemStats as s on s.itemId = it.id where it.owner = :owner")
+    List<Item> findAllByOwnerJoinStats(@Param("owner") User owner, Pageable pageable);
+
+    @Query(value = "select it.id from Item as it left join ItemStats as s on s.itemId = it.id where it.id in :ids")
+    List<Long> findIdsByIdInJoinStats(@Param("ids") Collection<Long> ids, Pageable pageable);
+
+    @Query(value = "select it.id from Item as it where it.id > :id order by it.id")
+    List<Long> findIdsByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    // Выражение должно совпадать с индексом idx_items_search из schema-postgresql.sql
+    String SEARCH_VECTOR = "(setweight(to_tsvector('simple', it.name), 'A') || " +
+            "setweight(to_tsvector('simple', it.description), 'B'))";
+
+    // Только для PostgreSQL. Идентификаторы возвращаются как BigInteger, поэтому тип элемента - Number
+    @Query(value = "select it.id " +
+            "from items as it, to_tsquery('simple', :query) as query " +
+            "where it.available = true and " + SEARCH_VECTOR + " @@ query " +
+            "order by ts_rank(" + SEARCH_VECTOR + ", query) desc, it.id",
+            nativeQuery = true)
+    List<Number> searchIdsByTsQuery(@Param("query") String tsQuery, Pageable pageable);
+
+    @Query(value = DTO_SELECT + "where it.id in :ids and it.available = true")
+    List<ItemDto> findAllDtoByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = DTO_SELECT + "where it.id > :id order by it.id")
+    List<ItemDto> findAllDtoByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(value = "select it.id from Item as it where it.owner.id = :ownerId")
+    List<Long> findIdsByOwnerId(@Param("ownerId") Long ownerId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = DTO_SELECT + "where it.owner.id = :ownerId order by it.id")
+    Stream<ItemDto> streamDtoByOwnerId(@Param("ownerId") Long ownerId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "select it.name from Item as it where it.available = true")
+    Stream<String> streamAvailableNames();
+
+    @Query(value = "select it.name from Item as it where it.owner.id = :ownerId and it.available = true")
+    List<String> findAvailableNamesByOwnerId(@Param("ownerId") Long ownerId);
 
     Optional<Item> findByIdAndOwnerIdNot(Long id, Long ownerId);
 
-    List<Item> findAllByRequest(ItemRequest request);
+    // Блокировка строки вещи до конца транзакции выстраивает бронирования вещи со всех экземпляров в очередь
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "select it.id from Item as it where it.id = :id")
+    Optional<Long> lockById(@Param("id") Long id);
+
+    @Query(value = DTO_SELECT + "where it.request.id in :requestIds")
+    List<ItemDto> findAllDtoByRequestIdIn(@Param("requestIds") Collection<Long> requestIds);
 
-    List<Item> findAllByRequestIn(List<ItemRequest> requests);
+    // Для каждого запроса не более limit первых добавленных вещей
+    @Query(value = "select id, name, description, available, owner_id, request_id " +
+            "from (select it.*, " +
+            "row_number() over (partition by it.request_id order by it.id) as rn " +
+            "from items as it " +
+            "where it.request_id in (:requestIds)) as request_items " +
+            "where rn <= :limit " +
+            "order by request_id, id",
+            nativeQuery = true)
+    List<Item> findFirstByRequestIds(@Param("requestIds") Collection<Long> requestIds, @Param("limit") int limit);
+
+    @Query(value = "select new ru.practicum.shareit.item.storage.RequestItemCount(it.request.id, count(it)) " +
+            "from Item as it " +
+            "where it.request.id in :requestIds " +
+            "group by it.request.id")
+    List<RequestItemCount> countByRequestIds(@Param("requestIds") Collection<Long> requestIds);
 }
@@ -0,0 +1,25 @@
+package ru.practicum.shareit.item.storage;
+
+import org.springframework.data.domain.Pageable;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.Collection;
+import java.util.List;
+
+/*
+ * Полнотекстовый поиск доступных вещей по названию и описанию. Реализация выбирается свойством
+ * shareit.item-search.engine: postgres (по умолчанию) или in-memory.
+ */
+public interface ItemSearchEngine {
+
+    // Идентификаторы найденных вещей по убыванию релевантности
+    List<Long> search(String text, Pageable pageable);
+
+    // Вызывается в транзакции, которая добавила или изменила вещь
+    default void onSaved(Item item) {
+    }
+
+    // Вызывается в транзакции, которая удаляет вещи
+    default void onRemoved(Collection<Long> itemIds) {
+    }
+}
@@ -0,0 +1,62 @@
+package ru.practicum.shareit.item.storage;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.item.model.ItemStats;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ItemStatsRepository extends JpaRepository<ItemStats, Long> {
+
+    List<ItemStats> findAllByItemIdIn(Collection<Long> itemIds);
+
+    // Атомарное изменение статистики на дельту, без чтения строки. Последняя активность только растет
+    @Modifying
+    @Query(value = "update ItemStats as s " +
+            "set s.commentsCount = s.commentsCount + :comments, " +
+            "s.bookingsCount = s.bookingsCount + :bookings, " +
+            "s.lastActivity = case when s.lastActivity is null or s.lastActivity < :activity " +
+            "then :activity else s.lastActivity end " +
+            "where s.itemId = :itemId")
+    int increment(@Param("itemId") Long itemId,
+                  @Param("comments") long comments,
+                  @Param("bookings") long bookings,
+                  @Param("activity") LocalDateTime activity);
+
+    // Строки статистики для новых вещей одним insert
+    @Modifying
+    @Query(value = "insert into item_stats (item_id) " +
+            "select it.id from items as it " +
+            "where it.id in (:itemIds)",
+            nativeQuery = true)
+    int insertByItemIdIn(@Param("itemIds") Collection<Long> itemIds);
+
+    @Modifying
+    @Query(value = "insert into item_stats (item_id) " +
+            "select it.id from items as it " +
+            "where it.id > :fromId and it.id <= :toId " +
+            "and not exists (select 1 from item_stats as s where s.item_id = it.id)",
+            nativeQuery = true)
+    int insertMissing(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    /*
+     * Пересчет статистики вещей с id в (fromId, toId] одним update. Моменты подтверждения бронирований нигде
+     * не хранятся, поэтому последняя активность не уменьшается. greatest пропускает null в H2 и PostgreSQL
+     */
+    @Modifying
+    @Query(value = "update item_stats as s " +
+            "set comments_count = (select count(*) from comments as c where c.item_id = s.item_id), " +
+            "bookings_count = (select count(*) from bookings as b where b.item_id = s.item_id) + " +
+            "(select count(*) from bookings_archive as ba where ba.item_id = s.item_id), " +
+            "last_activity = greatest(s.last_activity, " +
+            "(select max(c.created) from comments as c where c.item_id = s.item_id), " +
+            "(select max(b.created) from bookings as b where b.item_id = s.item_id), " +
+            "(select max(ba.created) from bookings_archive as ba where ba.item_id = s.item_id)) " +
+            "where s.item_id > :fromId and s.item_id <= :toId",
+            nativeQuery = true)
+    int recompute(@Param("fromId") Long fromId, @Param("toId") Long toId);
+}
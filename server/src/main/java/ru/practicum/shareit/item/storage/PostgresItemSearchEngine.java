@@ -0,0 +1,35 @@
+package ru.practicum.shareit.item.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+ * Поиск по tsvector из названия (вес A) и описания (вес B), индекс idx_items_search из schema-postgresql.sql.
+ * Каждое слово запроса ищется как префикс, все слова должны встретиться в вещи.
+ */
+@Component
+@ConditionalOnProperty(name = "shareit.item-search.engine", havingValue = "postgres", matchIfMissing = true)
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class PostgresItemSearchEngine implements ItemSearchEngine {
+    private final ItemRepository itemRepository;
+
+    @Override
+    public List<Long> search(String text, Pageable pageable) {
+        List<String> tokens = SearchTokens.of(text);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        String query = tokens.stream()
+                .map(token -> token + ":*")
+                .collect(Collectors.joining(" & "));
+        return itemRepository.searchIdsByTsQuery(query, pageable).stream()
+                .map(Number::longValue)
+                .collect(Collectors.toList());
+    }
+}
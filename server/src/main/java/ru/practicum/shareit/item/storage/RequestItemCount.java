@@ -0,0 +1,9 @@
+package ru.practicum.shareit.item.storage;
+
+import lombok.Value;
+
+@Value
+public class RequestItemCount {
+    Long requestId;
+    Long count;
+}
@@ -0,0 +1,19 @@
+package ru.practicum.shareit.item.storage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+// Разбиение текста на слова из букв и цифр в нижнем регистре, одинаковое для запроса и индексируемых полей
+public final class SearchTokens {
+
+    private SearchTokens() {
+    }
+
+    public static List<String> of(String text) {
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+"))
+                .filter(token -> !token.isEmpty())
+                .collect(Collectors.toList());
+    }
+}
@@ -2,19 +2,25 @@ package ru.practicum.shareit.request.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoIn;
 import ru.practicum.shareit.request.dto.ItemRequestDtoOut;
 import ru.practicum.shareit.request.dto.ItemRequestDtoOutExtended;
 import ru.practicum.shareit.request.service.ItemRequestService;
+import ru.practicum.shareit.util.pagination.SeekCursor;
 
 import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequestMapping(path = "/requests")
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class ItemRequestController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ItemRequestService itemRequestService;
 
     @PostMapping
@@ -24,16 +30,27 @@ public class ItemRequestController {
     }
 
     @GetMapping
-    public List<ItemRequestDtoOutExtended> findByUser(@RequestHeader("X-Sharer-User-Id") long userId) {
-        return itemRequestService.findByRequestor(userId);
+    public ResponseEntity<List<ItemRequestDtoOutExtended>> findByUser(
+            @RequestParam Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader("X-Sharer-User-Id") long userId) {
+        List<ItemRequestDtoOutExtended> itemRequests = Objects.isNull(cursor) ?
+                itemRequestService.findByRequestor(userId, size) :
+                itemRequestService.findByRequestor(userId, SeekCursor.decode(cursor), size);
+        return withNextCursor(itemRequests, size);
     }
 
+    // Без cursor страница выбирается по from, следующие страницы удобнее и дешевле читать по X-Next-Cursor
     @GetMapping("/all")
-    public List<ItemRequestDtoOutExtended> findAllByOtherUsers(
-            @RequestParam Long from,
+    public ResponseEntity<List<ItemRequestDtoOutExtended>> findAllByOtherUsers(
+            @RequestParam(defaultValue = "0") Long from,
             @RequestParam Integer size,
+            @RequestParam(required = false) String cursor,
             @RequestHeader("X-Sharer-User-Id") long userId) {
-        return itemRequestService.findByOtherUsers(userId, from, size);
+        List<ItemRequestDtoOutExtended> itemRequests = Objects.isNull(cursor) ?
+                itemRequestService.findByOtherUsers(userId, from, size) :
+                itemRequestService.findByOtherUsers(userId, SeekCursor.decode(cursor), size);
+        return withNextCursor(itemRequests, size);
     }
 
     @GetMapping("/{requestId}")
@@ -42,8 +59,22 @@ public class ItemRequestController {
         return itemRequestService.findById(requestId, userId);
     }
 
+    @GetMapping("/{requestId}/suggestions")
+    public List<ItemDto> findSuggestions(@PathVariable long requestId,
+                                         @RequestParam Long from,
+                                         @RequestParam Integer size,
+                                         @RequestHeader("X-Sharer-User-Id") long userId) {
+        return itemRequestService.findSuggestions(requestId, userId, from, size);
+    }
 
-
-
-
+    private static ResponseEntity<List<ItemRequestDtoOutExtended>> withNextCursor(
+            List<ItemRequestDtoOutExtended> itemRequests, int size) {
+        if (itemRequests.size() < size) {
+            return ResponseEntity.ok(itemRequests);
+        }
+        ItemRequestDtoOutExtended last = itemRequests.get(itemRequests.size() - 1);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, SeekCursor.of(last.getCreated(), last.getId()).encode())
+                .body(itemRequests);
+    }
 }
@@ -1,9 +1,10 @@
 package ru.practicum.shareit.request.dto;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.Named;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemDtoMapper;
-import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.model.ItemRequest;
 
 import java.util.Collections;
@@ -17,15 +18,20 @@ public interface ItemRequestDtoMapper {
 
     ItemRequestDtoOut toDto(ItemRequest itemRequest);
 
-    ItemRequestDtoOutExtended toExtendedDto(ItemRequest itemRequest, List<Item> items);
+    @Mapping(target = "itemsCount", expression = "java(items.size())")
+    ItemRequestDtoOutExtended toExtendedDto(ItemRequest itemRequest, List<ItemDto> items);
+
+    ItemRequestDtoOutExtended toExtendedDto(ItemRequestDtoOut itemRequest, List<ItemDto> items, long itemsCount);
 
     @Named("toExtendedDto")
-    default List<ItemRequestDtoOutExtended> toExtendedDto(List<ItemRequest> itemRequests,
-                                                                Map<Long, List<Item>> itemsByRequestId) {
+    default List<ItemRequestDtoOutExtended> toExtendedDto(List<ItemRequestDtoOut> itemRequests,
+                                                                Map<Long, List<ItemDto>> itemsByRequestId,
+                                                                Map<Long, Long> itemsCountByRequestId) {
         return itemRequests.stream()
                 .map(itemRequest -> {
-                    List<Item> items = itemsByRequestId.get(itemRequest.getId());
-                    return toExtendedDto(itemRequest, Objects.isNull(items) ? Collections.emptyList() : items);
+                    List<ItemDto> items = itemsByRequestId.get(itemRequest.getId());
+                    return toExtendedDto(itemRequest, Objects.isNull(items) ? Collections.emptyList() : items,
+                            itemsCountByRequestId.getOrDefault(itemRequest.getId(), 0L));
                 })
                 .collect(Collectors.toList());
 
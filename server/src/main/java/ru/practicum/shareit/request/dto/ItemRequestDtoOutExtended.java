@@ -15,5 +15,8 @@ public class ItemRequestDtoOutExtended {
 
     LocalDateTime created;
 
+    // Все вещи, добавленные на запрос, в items в списках запросов - только первые из них
+    long itemsCount;
+
     List<ItemDto> items;
 }
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.request.dto;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+// Поля запроса вместе с автором для индекса ItemRequestTermIndex и ленты ItemRequestFeedCache
+@Value
+public class ItemRequestRow {
+
+    Long id;
+
+    Long requestorId;
+
+    String description;
+
+    LocalDateTime created;
+}
@@ -0,0 +1,65 @@
+package ru.practicum.shareit.request.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/*
+ * Вещь, подобранная ItemRequestMatcher для открытого запроса. score - доля слов описания запроса,
+ * найденных в названии и описании вещи. Предложения вещи пересоздаются при каждом изменении ее текста,
+ * поэтому строки только вставляются: isNew всегда true, и save обходится без select перед insert.
+ */
+@Entity
+@Table(name = "request_suggestions")
+@IdClass(RequestSuggestion.Key.class)
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+public class RequestSuggestion implements Persistable<RequestSuggestion.Key> {
+    @Id
+    @Column(name = "request_id")
+    private Long requestId;
+
+    @Id
+    @Column(name = "item_id")
+    private Long itemId;
+
+    private double score;
+
+    private LocalDateTime created;
+
+    public RequestSuggestion(Long requestId, Long itemId, double score, LocalDateTime created) {
+        this.requestId = requestId;
+        this.itemId = itemId;
+        this.score = score;
+        this.created = created;
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(requestId, itemId);
+    }
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long requestId;
+
+        private Long itemId;
+    }
+}
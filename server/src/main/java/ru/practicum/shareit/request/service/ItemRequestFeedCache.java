@@ -0,0 +1,248 @@
+package ru.practicum.shareit.request.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.request.dto.ItemRequestDtoOutExtended;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.util.pagination.SeekCursor;
+import ru.practicum.shareit.util.transaction.AfterCommit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/*
+ * Общая для всех пользователей лента capacity самых новых запросов с первыми вещами и их числом. Чужие запросы
+ * пользователя - это лента без его собственных запросов, поэтому они отфильтровываются при чтении.
+ * Лента собирается заново раз в bucket-seconds (границы интервалов одинаковы для всех экземпляров сервиса),
+ * а в пределах интервала дополняется после фиксации транзакций, добавивших запросы и вещи для запросов.
+ * Остальные изменения (правка вещи запроса, каскадное удаление вещей вместе с владельцем) сбрасывают ленту.
+ * Лента не изменяется на месте: обновление заменяет ее копией, поэтому чтение не блокируется.
+ * Лента, собранная во время обновления или сброса, не сохраняется: ее могли прочитать до фиксации изменения.
+ * Не сохраняется и лента, собранная, пока транзакция с обновлением ленты уже фиксируется, но еще не применила
+ * его: такая лента может уже содержать изменение, и оно учлось бы дважды. Кроме того, обновления пропускают
+ * запросы и вещи, которые уже есть в ленте.
+ */
+@Component
+public class ItemRequestFeedCache {
+    private static final Comparator<Entry> FEED_ORDER = Comparator
+            .comparing((Entry entry) -> entry.getRequest().getCreated())
+            .thenComparing(entry -> entry.getRequest().getId())
+            .reversed();
+
+    private final AtomicReference<Feed> feed = new AtomicReference<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicInteger committing = new AtomicInteger();
+    private final int capacity;
+    private final long bucketMillis;
+    private final int previewItems;
+
+    public ItemRequestFeedCache(@Value("${shareit.request-feed.capacity:1000}") int capacity,
+                                @Value("${shareit.request-feed.bucket-seconds:30}") long bucketSeconds,
+                                @Value("${shareit.request.preview-items:10}") int previewItems) {
+        this.capacity = capacity;
+        this.bucketMillis = bucketSeconds * 1000;
+        this.previewItems = previewItems;
+    }
+
+    /*
+     * Страница чужих запросов пользователя по смещению, как в PageRequest.of(from / size, size), или null,
+     * если страница выходит за пределы ленты. loader читает из базы не больше заданного числа новых запросов.
+     */
+    public List<ItemRequestDtoOutExtended> find(long userId, long from, int size, IntFunction<List<Entry>> loader) {
+        return page(current(loader), entry -> true, userId, from / size * size, size);
+    }
+
+    public List<ItemRequestDtoOutExtended> find(long userId, SeekCursor cursor, int size,
+                                                IntFunction<List<Entry>> loader) {
+        return page(current(loader), entry -> isAfter(entry.getRequest(), cursor), userId, 0, size);
+    }
+
+    public void onRequestAdded(ItemRequest request) {
+        Entry entry = new Entry(request.getRequestor().getId(), new ItemRequestDtoOutExtended(request.getId(),
+                request.getDescription(), request.getCreated(), 0, List.of()));
+        updateAfterCommit(current -> current.withRequest(entry));
+    }
+
+    public void onItemsAdded(Collection<ItemDto> items) {
+        List<ItemDto> requestItems = items.stream()
+                .filter(item -> Objects.nonNull(item.getRequestId()))
+                .collect(Collectors.toList());
+        if (!requestItems.isEmpty()) {
+            updateAfterCommit(current -> current.withItems(requestItems));
+        }
+    }
+
+    public void invalidateAfterCommit() {
+        AfterCommit.run(() -> {
+            invalidations.incrementAndGet();
+            feed.set(null);
+        });
+    }
+
+    // Пока транзакция между началом фиксации и применением обновления, committing не дает сохранить новую ленту
+    private void updateAfterCommit(UnaryOperator<Feed> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean counted;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                committing.incrementAndGet();
+                counted = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    update(change);
+                }
+                if (counted) {
+                    committing.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    private void update(UnaryOperator<Feed> change) {
+        invalidations.incrementAndGet();
+        feed.updateAndGet(current -> Objects.isNull(current) ? null : change.apply(current));
+    }
+
+    // Один поток собирает ленту нового интервала, остальные ждут ее, а не обращаются к базе сами
+    private Feed current(IntFunction<List<Entry>> loader) {
+        long bucket = System.currentTimeMillis() / bucketMillis;
+        Feed current = feed.get();
+        if (Objects.nonNull(current) && current.getBucket() == bucket) {
+            return current;
+        }
+        synchronized (this) {
+            current = feed.get();
+            if (Objects.nonNull(current) && current.getBucket() == bucket) {
+                return current;
+            }
+            long version = invalidations.get();
+            List<Entry> entries = loader.apply(capacity);
+            Feed loaded = new Feed(bucket, List.copyOf(entries), entries.size() < capacity);
+            if (invalidations.get() == version && committing.get() == 0) {
+                feed.set(loaded);
+            }
+            return loaded;
+        }
+    }
+
+    private List<ItemRequestDtoOutExtended> page(Feed current, Predicate<Entry> start, long userId, long offset,
+                                                 int size) {
+        List<ItemRequestDtoOutExtended> page = new ArrayList<>(size);
+        long skipped = 0;
+        for (Entry entry : current.getEntries()) {
+            if (entry.getRequestorId() == userId || !start.test(entry)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            page.add(entry.getRequest());
+            if (page.size() == size) {
+                return page;
+            }
+        }
+        return current.isComplete() ? page : null;
+    }
+
+    private static boolean isAfter(ItemRequestDtoOutExtended request, SeekCursor cursor) {
+        LocalDateTime created = request.getCreated();
+        return created.isBefore(cursor.getTime())
+                || (created.isEqual(cursor.getTime()) && request.getId() < cursor.getId());
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Entry {
+        private final long requestorId;
+        private final ItemRequestDtoOutExtended request;
+
+        // Новые вещи идут после уже показанных: в превью первые по id вещи запроса
+        Entry withItems(List<ItemDto> added, int previewItems) {
+            Set<Long> shownIds = request.getItems().stream()
+                    .map(ItemDto::getId)
+                    .collect(Collectors.toSet());
+            List<ItemDto> newItems = added.stream()
+                    .filter(item -> !shownIds.contains(item.getId()))
+                    .collect(Collectors.toList());
+            if (newItems.isEmpty()) {
+                return this;
+            }
+            List<ItemDto> items = new ArrayList<>(request.getItems());
+            newItems.stream()
+                    .limit(Math.max(previewItems - items.size(), 0))
+                    .forEach(items::add);
+            return new Entry(requestorId, new ItemRequestDtoOutExtended(request.getId(), request.getDescription(),
+                    request.getCreated(), request.getItemsCount() + newItems.size(), List.copyOf(items)));
+        }
+    }
+
+    // complete - в ленте все запросы, иначе после последнего запроса ленты в базе есть и другие
+    @Getter
+    @RequiredArgsConstructor
+    private class Feed {
+        private final long bucket;
+        private final List<Entry> entries;
+        private final boolean complete;
+
+        Feed withRequest(Entry added) {
+            long addedId = added.getRequest().getId();
+            if (entries.stream().anyMatch(entry -> entry.getRequest().getId() == addedId)) {
+                return this;
+            }
+            List<Entry> updated = new ArrayList<>(entries);
+            int index = 0;
+            while (index < updated.size() && FEED_ORDER.compare(updated.get(index), added) < 0) {
+                index++;
+            }
+            if (index == updated.size() && !complete) {
+                return this;
+            }
+            updated.add(index, added);
+            if (updated.size() <= capacity) {
+                return new Feed(bucket, List.copyOf(updated), complete);
+            }
+            return new Feed(bucket, List.copyOf(updated.subList(0, capacity)), false);
+        }
+
+        Feed withItems(List<ItemDto> items) {
+            Map<Long, List<ItemDto>> itemsByRequestId = items.stream()
+                    .collect(Collectors.groupingBy(ItemDto::getRequestId, Collectors.toList()));
+            List<Entry> updated = new ArrayList<>(entries.size());
+            boolean changed = false;
+            for (Entry entry : entries) {
+                List<ItemDto> added = itemsByRequestId.get(entry.getRequest().getId());
+                Entry updatedEntry = Objects.isNull(added) ? entry : entry.withItems(added, previewItems);
+                updated.add(updatedEntry);
+                changed |= updatedEntry != entry;
+            }
+            return changed ? new Feed(bucket, List.copyOf(updated), complete) : this;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.shareit.request.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.request.storage.ItemRequestTermIndex;
+
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class ItemRequestIndexCatchUpJob {
+    private final ItemRequestTermIndex itemRequestTermIndex;
+
+    // Запросы других экземпляров сервиса начинают подбираться не позже чем через интервал дочитывания
+    @Scheduled(initialDelayString = "${shareit.request-matching.catch-up-delay-ms:30000}",
+            fixedDelayString = "${shareit.request-matching.catch-up-delay-ms:30000}")
+    public void catchUp() {
+        int added = itemRequestTermIndex.catchUp();
+        log.debug("Added {} item requests of other instances to matching index", added);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.shareit.request.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.request.storage.ItemRequestTermIndex;
+
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class ItemRequestIndexEvictionJob {
+    private final ItemRequestTermIndex itemRequestTermIndex;
+
+    // Устаревшие запросы и так не подбираются, вытеснение только освобождает память
+    @Scheduled(initialDelayString = "${shareit.request-matching.evict-delay-ms:3600000}",
+            fixedDelayString = "${shareit.request-matching.evict-delay-ms:3600000}")
+    public void evict() {
+        int evicted = itemRequestTermIndex.evictExpired();
+        log.debug("Evicted {} expired item requests from matching index", evicted);
+    }
+}
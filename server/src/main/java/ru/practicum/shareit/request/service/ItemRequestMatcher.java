@@ -0,0 +1,73 @@
+package ru.practicum.shareit.request.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.RequestSuggestion;
+import ru.practicum.shareit.request.storage.ItemRequestTermIndex;
+import ru.practicum.shareit.request.storage.RequestSuggestionRepository;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/*
+ * Подбирает для доступной вещи открытые запросы по словам ее названия и описания и сохраняет предложения
+ * в транзакции, которая создала или изменила вещь. На вещь сохраняется не больше max-suggestions-per-item
+ * запросов с наибольшей долей совпавших слов. Собственные запросы владельца и запрос, на который вещь
+ * добавлена явно, не предлагаются.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class ItemRequestMatcher {
+    private static final Comparator<Map.Entry<Long, Double>> SCORE_ORDER =
+            Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+
+    private final ItemRequestTermIndex itemRequestTermIndex;
+    private final RequestSuggestionRepository requestSuggestionRepository;
+
+    @Value("${shareit.request-matching.max-suggestions-per-item:20}")
+    private int maxSuggestionsPerItem;
+
+    public void onItemAdded(Item item) {
+        if (item.getAvailable()) {
+            suggest(item);
+        }
+    }
+
+    public void onItemsAdded(List<Item> items) {
+        items.forEach(this::onItemAdded);
+    }
+
+    // Предложения вещи заменяются подобранными по новому тексту, недоступная вещь теряет все предложения
+    public void onItemChanged(Item item) {
+        requestSuggestionRepository.deleteByItemId(item.getId());
+        onItemAdded(item);
+    }
+
+    private void suggest(Item item) {
+        Map<Long, Double> scores = itemRequestTermIndex.match(item.getName() + " " + item.getDescription(),
+                item.getOwner().getId());
+        if (Objects.nonNull(item.getRequest())) {
+            scores.remove(item.getRequest().getId());
+        }
+        if (scores.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<RequestSuggestion> suggestions = scores.entrySet().stream()
+                .sorted(SCORE_ORDER)
+                .limit(maxSuggestionsPerItem)
+                .map(entry -> new RequestSuggestion(entry.getKey(), item.getId(), entry.getValue(), now))
+                .collect(Collectors.toList());
+        requestSuggestionRepository.saveAll(suggestions);
+        log.debug("Suggest item id={} for {} requests", item.getId(), suggestions.size());
+    }
+}
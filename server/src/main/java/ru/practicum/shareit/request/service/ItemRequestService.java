@@ -1,8 +1,10 @@
 package ru.practicum.shareit.request.service;
 
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoIn;
 import ru.practicum.shareit.request.dto.ItemRequestDtoOut;
 import ru.practicum.shareit.request.dto.ItemRequestDtoOutExtended;
+import ru.practicum.shareit.util.pagination.SeekCursor;
 
 import java.util.List;
 
@@ -11,7 +13,13 @@ public interface ItemRequestService {
 
     ItemRequestDtoOutExtended findById(long id, long userId);
 
-    List<ItemRequestDtoOutExtended> findByRequestor(long requestorId);
+    List<ItemRequestDtoOutExtended> findByRequestor(long requestorId, int size);
+
+    List<ItemRequestDtoOutExtended> findByRequestor(long requestorId, SeekCursor cursor, int size);
 
     List<ItemRequestDtoOutExtended> findByOtherUsers(long userId, long from, int size);
+
+    List<ItemRequestDtoOutExtended> findByOtherUsers(long userId, SeekCursor cursor, int size);
+
+    List<ItemDto> findSuggestions(long id, long userId, long from, int size);
 }
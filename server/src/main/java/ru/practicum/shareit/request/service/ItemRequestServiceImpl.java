@@ -3,26 +3,36 @@ package ru.practicum.shareit.request.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.exception.NotFoundException;
-import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemDtoMapper;
 import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.item.storage.RequestItemCount;
 import ru.practicum.shareit.request.dto.ItemRequestDtoIn;
 import ru.practicum.shareit.request.dto.ItemRequestDtoMapper;
 import ru.practicum.shareit.request.dto.ItemRequestDtoOut;
 import ru.practicum.shareit.request.dto.ItemRequestDtoOutExtended;
+import ru.practicum.shareit.request.dto.ItemRequestRow;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.storage.ItemRequestRepository;
+import ru.practicum.shareit.request.storage.ItemRequestTermIndex;
+import ru.practicum.shareit.request.storage.RequestSuggestionRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.storage.UserRepository;
+import ru.practicum.shareit.util.pagination.SeekCursor;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,11 +40,19 @@ import java.util.stream.Collectors;
 @Slf4j
 @Transactional(readOnly = true)
 public class ItemRequestServiceImpl implements ItemRequestService {
+    private static final Sort REQUESTS_SORT = Sort.by(Sort.Direction.DESC, "created", "id");
 
     private final ItemRequestRepository itemRequestRepository;
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
     private final ItemRequestDtoMapper itemRequestDtoMapper;
+    private final ItemRequestTermIndex itemRequestTermIndex;
+    private final RequestSuggestionRepository requestSuggestionRepository;
+    private final ItemDtoMapper itemDtoMapper;
+    private final ItemRequestFeedCache itemRequestFeedCache;
+
+    @Value("${shareit.request.preview-items:10}")
+    private int previewItems;
 
     @Override
     @Transactional
@@ -42,8 +60,11 @@ public class ItemRequestServiceImpl implements ItemRequestService {
         User requestor = getUser(userId);
         ItemRequest request = itemRequestDtoMapper.fromDto(dto);
         request.setRequestor(requestor);
-        request.setCreated(LocalDateTime.now());
+        // С точностью столбца в базе, чтобы курсор из ленты в кэше совпадал с сохраненным значением
+        request.setCreated(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
         request = itemRequestRepository.save(request);
+        itemRequestTermIndex.onAdded(request);
+        itemRequestFeedCache.onRequestAdded(request);
         log.debug("Add item request {}", request);
         return itemRequestDtoMapper.toDto(request);
     }
@@ -52,27 +73,54 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     public ItemRequestDtoOutExtended findById(long id, long userId) {
         getUser(userId);
         ItemRequest itemRequest = getItemRequest(id);
-        List<Item> items = itemRepository.findAllByRequest(itemRequest);
+        List<ItemDto> items = itemRepository.findAllDtoByRequestIdIn(List.of(itemRequest.getId()));
         return itemRequestDtoMapper.toExtendedDto(itemRequest, items);
     }
 
     @Override
-    public List<ItemRequestDtoOutExtended> findByRequestor(long requestorId) {
-        User requestor = getUser(requestorId);
-        List<ItemRequest> itemRequests = itemRequestRepository.findAllByRequestor(requestor,
-                Sort.by(Sort.Direction.DESC, "created"));
-        List<Item> items = itemRepository.findAllByRequestIn(itemRequests);
-        return itemRequestDtoMapper.toExtendedDto(itemRequests, formItemsByRequestIds(items));
+    public List<ItemRequestDtoOutExtended> findByRequestor(long requestorId, int size) {
+        getUser(requestorId);
+        return formExtendedDto(itemRequestRepository.findAllByRequestorId(requestorId,
+                PageRequest.of(0, size, REQUESTS_SORT)));
+    }
+
+    @Override
+    public List<ItemRequestDtoOutExtended> findByRequestor(long requestorId, SeekCursor cursor, int size) {
+        getUser(requestorId);
+        return formExtendedDto(itemRequestRepository.findAllByRequestorIdSeek(requestorId, cursor.getTime(),
+                cursor.getId(), PageRequest.of(0, size, REQUESTS_SORT)));
     }
 
     @Override
     public List<ItemRequestDtoOutExtended> findByOtherUsers(long userId, long from, int size) {
-        User exceptedRequestor = getUser(userId);
-        Sort sort = Sort.by(Sort.Direction.DESC, "created");
-        Pageable pageable = PageRequest.of((int) (from / size), size, sort);
-        List<ItemRequest> itemRequests = itemRequestRepository.findAllByRequestorIsNot(exceptedRequestor, pageable);
-        List<Item> items = itemRepository.findAllByRequestIn(itemRequests);
-        return itemRequestDtoMapper.toExtendedDto(itemRequests, formItemsByRequestIds(items));
+        getUser(userId);
+        List<ItemRequestDtoOutExtended> cached = itemRequestFeedCache.find(userId, from, size, this::loadFeed);
+        if (Objects.nonNull(cached)) {
+            return cached;
+        }
+        return formExtendedDto(itemRequestRepository.findAllByRequestorIdNot(userId,
+                PageRequest.of((int) (from / size), size, REQUESTS_SORT)));
+    }
+
+    @Override
+    public List<ItemRequestDtoOutExtended> findByOtherUsers(long userId, SeekCursor cursor, int size) {
+        getUser(userId);
+        List<ItemRequestDtoOutExtended> cached = itemRequestFeedCache.find(userId, cursor, size, this::loadFeed);
+        if (Objects.nonNull(cached)) {
+            return cached;
+        }
+        return formExtendedDto(itemRequestRepository.findAllByRequestorIdNotSeek(userId, cursor.getTime(),
+                cursor.getId(), PageRequest.of(0, size, REQUESTS_SORT)));
+    }
+
+    // Предложения сохраняются только для открытых запросов, но уже сделанные остаются и после закрытия
+    @Override
+    public List<ItemDto> findSuggestions(long id, long userId, long from, int size) {
+        getUser(userId);
+        getItemRequest(id);
+        Sort sort = Sort.by(Sort.Direction.DESC, "score").and(Sort.by(Sort.Direction.ASC, "itemId"));
+        return requestSuggestionRepository.findAvailableItemsByRequestId(id,
+                PageRequest.of((int) (from / size), size, sort));
     }
 
     private ItemRequest getItemRequest(long requestId) {
@@ -85,8 +133,32 @@ public class ItemRequestServiceImpl implements ItemRequestService {
                 .orElseThrow(() -> new NotFoundException("User with id=" + userId + " not found"));
     }
 
-    private Map<Long, List<Item>> formItemsByRequestIds(List<Item> allItems) {
-        return allItems.stream()
-                .collect(Collectors.groupingBy(item -> item.getRequest().getId(), Collectors.toList()));
+    // Первые preview-items вещей каждого запроса страницы и их общее число - два запроса на страницу
+    private List<ItemRequestDtoOutExtended> formExtendedDto(List<ItemRequestDtoOut> itemRequests) {
+        if (itemRequests.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> requestIds = itemRequests.stream()
+                .map(ItemRequestDtoOut::getId)
+                .collect(Collectors.toList());
+        Map<Long, List<ItemDto>> itemsByRequestId = itemRepository.findFirstByRequestIds(requestIds, previewItems)
+                .stream()
+                .map(itemDtoMapper::toDto)
+                .collect(Collectors.groupingBy(ItemDto::getRequestId, Collectors.toList()));
+        Map<Long, Long> itemsCountByRequestId = itemRepository.countByRequestIds(requestIds).stream()
+                .collect(Collectors.toMap(RequestItemCount::getRequestId, RequestItemCount::getCount));
+        return itemRequestDtoMapper.toExtendedDto(itemRequests, itemsByRequestId, itemsCountByRequestId);
+    }
+
+    private List<ItemRequestFeedCache.Entry> loadFeed(int limit) {
+        List<ItemRequestRow> rows = itemRequestRepository.findAllRows(PageRequest.of(0, limit, REQUESTS_SORT));
+        List<ItemRequestDtoOutExtended> itemRequests = formExtendedDto(rows.stream()
+                .map(row -> new ItemRequestDtoOut(row.getId(), row.getDescription(), row.getCreated()))
+                .collect(Collectors.toList()));
+        List<ItemRequestFeedCache.Entry> entries = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            entries.add(new ItemRequestFeedCache.Entry(rows.get(i).getRequestorId(), itemRequests.get(i)));
+        }
+        return entries;
     }
 }
@@ -1,16 +1,59 @@
 package ru.practicum.shareit.request.storage;
 
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.request.dto.ItemRequestDtoOut;
+import ru.practicum.shareit.request.dto.ItemRequestRow;
 import ru.practicum.shareit.request.model.ItemRequest;
-import ru.practicum.shareit.user.model.User;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long> {
 
-    List<ItemRequest> findAllByRequestor(User requestor, Sort sort);
+    // Проекция запроса сразу в ItemRequestDtoOut для списков только на чтение
+    String DTO_SELECT = "select new ru.practicum.shareit.request.dto.ItemRequestDtoOut(r.id, r.description, r.created) " +
+            "from ItemRequest as r ";
+
+    // Страницы запросов, новые первыми: сортировка (created, id) передается в pageable
+    @Query(value = DTO_SELECT + "where r.requestor.id = :requestorId")
+    List<ItemRequestDtoOut> findAllByRequestorId(@Param("requestorId") Long requestorId, Pageable pageable);
+
+    @Query(value = DTO_SELECT + "where r.requestor.id = :requestorId " +
+            "and (r.created < :cursorCreated or (r.created = :cursorCreated and r.id < :cursorId))")
+    List<ItemRequestDtoOut> findAllByRequestorIdSeek(@Param("requestorId") Long requestorId,
+                                                     @Param("cursorCreated") LocalDateTime cursorCreated,
+                                                     @Param("cursorId") Long cursorId,
+                                                     Pageable pageable);
+
+    @Query(value = DTO_SELECT + "where r.requestor.id <> :requestorId")
+    List<ItemRequestDtoOut> findAllByRequestorIdNot(@Param("requestorId") Long exceptedRequestorId,
+                                                    Pageable pageable);
+
+    // Условие created <= :cursorCreated повторяет курсор в виде диапазона, по которому читается idx_requests_created:
+    // условие с or H2 в диапазон индекса не превращает
+    @Query(value = DTO_SELECT + "where r.requestor.id <> :requestorId and r.created <= :cursorCreated " +
+            "and (r.created < :cursorCreated or (r.created = :cursorCreated and r.id < :cursorId))")
+    List<ItemRequestDtoOut> findAllByRequestorIdNotSeek(@Param("requestorId") Long exceptedRequestorId,
+                                                        @Param("cursorCreated") LocalDateTime cursorCreated,
+                                                        @Param("cursorId") Long cursorId,
+                                                        Pageable pageable);
+
+    @Query(value = "select new ru.practicum.shareit.request.dto.ItemRequestRow(" +
+            "r.id, r.requestor.id, r.description, r.created) " +
+            "from ItemRequest as r")
+    List<ItemRequestRow> findAllRows(Pageable pageable);
 
-    List<ItemRequest> findAllByRequestorIsNot(User exceptedRequestor, Pageable pageable);
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "select new ru.practicum.shareit.request.dto.ItemRequestRow(" +
+            "r.id, r.requestor.id, r.description, r.created) " +
+            "from ItemRequest as r where r.created > :createdAfter")
+    Stream<ItemRequestRow> streamIndexRowsByCreatedAfter(@Param("createdAfter") LocalDateTime createdAfter);
 }
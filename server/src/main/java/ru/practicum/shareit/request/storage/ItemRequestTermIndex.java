@@ -0,0 +1,201 @@
+package ru.practicum.shareit.request.storage;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.item.storage.SearchTokens;
+import ru.practicum.shareit.request.dto.ItemRequestRow;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.util.transaction.AfterCommit;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ * Инвертированный индекс открытых запросов вещей в памяти экземпляра: слово описания -> запросы с этим словом.
+ * Открытым считается запрос моложе open-days, устаревшие запросы удаляет ItemRequestIndexEvictionJob.
+ * Индекс заполняется при старте и обновляется после фиксации транзакций, добавивших запросы. Запросы, добавленные
+ * другими экземплярами сервиса, ItemRequestIndexCatchUpJob дочитывает из базы по created. Запросы не изменяются
+ * и не удаляются, поэтому дочитывания новых строк достаточно, а уже известные запросы пропускаются.
+ * Подбор обходит только списки слов вещи, причем слова, которые встречаются больше чем в max-term-requests
+ * запросах, пропускаются: они почти не отличают запросы друг от друга, а обход их списков сделал бы подбор
+ * линейным по числу открытых запросов.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class ItemRequestTermIndex {
+    private final ItemRequestRepository itemRequestRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Value("${shareit.request-matching.open-days:30}")
+    private long openDays;
+
+    @Value("${shareit.request-matching.min-term-length:3}")
+    private int minTermLength;
+
+    @Value("${shareit.request-matching.max-term-requests:1000}")
+    private int maxTermRequests;
+
+    @Value("${shareit.request-matching.catch-up-lag-ms:60000}")
+    private long catchUpLagMillis;
+
+    private LocalDateTime caughtUpFrom;
+
+    @PostConstruct
+    public void load() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        read(startedAt.minusDays(openDays));
+        caughtUpFrom = startedAt.minusNanos(catchUpLagMillis * 1_000_000);
+        log.info("Loaded {} open item requests into matching index", documents.size());
+    }
+
+    /*
+     * Дочитывает запросы, созданные после предыдущего чтения, возвращает число новых запросов. Окно чтения
+     * начинается на catch-up-lag-ms раньше: запрос мог получить created задолго до фиксации своей транзакции.
+     */
+    public int catchUp() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        int added = read(caughtUpFrom);
+        caughtUpFrom = startedAt.minusNanos(catchUpLagMillis * 1_000_000);
+        return added;
+    }
+
+    public void onAdded(ItemRequest request) {
+        long requestId = request.getId();
+        long requestorId = request.getRequestor().getId();
+        String description = request.getDescription();
+        LocalDateTime created = request.getCreated();
+        AfterCommit.run(() -> add(requestId, requestorId, description, created));
+    }
+
+    /*
+     * Открытые запросы, в описании которых есть слова text, кроме запросов excludedRequestorId.
+     * Значение - доля слов описания запроса, найденных в text.
+     */
+    public Map<Long, Double> match(String text, long excludedRequestorId) {
+        Map<Long, Double> scores = new HashMap<>();
+        Set<String> terms = terms(text);
+        if (terms.isEmpty()) {
+            return scores;
+        }
+        LocalDateTime createdAfter = LocalDateTime.now().minusDays(openDays);
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> matched = new HashMap<>();
+            for (String term : terms) {
+                Set<Long> requestIds = postings.get(term);
+                if (Objects.nonNull(requestIds) && requestIds.size() <= maxTermRequests) {
+                    requestIds.forEach(requestId -> matched.merge(requestId, 1, Integer::sum));
+                }
+            }
+            matched.forEach((requestId, count) -> {
+                Document document = documents.get(requestId);
+                if (document.getRequestorId() != excludedRequestorId && document.getCreated().isAfter(createdAfter)) {
+                    scores.put(requestId, (double) count / document.getTerms().size());
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scores;
+    }
+
+    // Удаляет запросы старше open-days, возвращает их количество
+    public int evictExpired() {
+        LocalDateTime createdAfter = LocalDateTime.now().minusDays(openDays);
+        int evicted = 0;
+        lock.writeLock().lock();
+        try {
+            Iterator<Map.Entry<Long, Document>> entries = documents.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Long, Document> entry = entries.next();
+                if (!entry.getValue().getCreated().isAfter(createdAfter)) {
+                    removePostings(entry.getKey(), entry.getValue());
+                    entries.remove();
+                    evicted++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return evicted;
+    }
+
+    private int read(LocalDateTime createdAfter) {
+        LocalDateTime openAfter = LocalDateTime.now().minusDays(openDays);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        Integer added = transactionTemplate.execute(status -> {
+            try (Stream<ItemRequestRow> rows = itemRequestRepository.streamIndexRowsByCreatedAfter(
+                    createdAfter.isAfter(openAfter) ? createdAfter : openAfter)) {
+                return rows
+                        .mapToInt(row -> add(row.getId(), row.getRequestorId(), row.getDescription(),
+                                row.getCreated()) ? 1 : 0)
+                        .sum();
+            }
+        });
+        return Objects.isNull(added) ? 0 : added;
+    }
+
+    // Запрос, который уже есть в индексе, не добавляется повторно
+    private boolean add(long requestId, long requestorId, String description, LocalDateTime created) {
+        Set<String> terms = terms(description);
+        if (terms.isEmpty()) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            if (Objects.nonNull(documents.putIfAbsent(requestId, new Document(requestorId, created, terms)))) {
+                return false;
+            }
+            terms.forEach(term -> postings.computeIfAbsent(term, key -> new HashSet<>()).add(requestId));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removePostings(long requestId, Document document) {
+        for (String term : document.getTerms()) {
+            Set<Long> requestIds = postings.get(term);
+            requestIds.remove(requestId);
+            if (requestIds.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    // Короткие слова (предлоги, союзы) не участвуют в подборе
+    private Set<String> terms(String text) {
+        return SearchTokens.of(text).stream()
+                .filter(term -> term.length() >= minTermLength)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class Document {
+        private final long requestorId;
+        private final LocalDateTime created;
+        private final Set<String> terms;
+    }
+}
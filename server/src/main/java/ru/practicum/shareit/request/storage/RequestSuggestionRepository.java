@@ -0,0 +1,25 @@
+package ru.practicum.shareit.request.storage;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.request.model.RequestSuggestion;
+
+import java.util.List;
+
+public interface RequestSuggestionRepository extends JpaRepository<RequestSuggestion, RequestSuggestion.Key> {
+
+    // Доступные вещи, подобранные для запроса, сортировка по полям RequestSuggestion (s.score, s.created)
+    @Query("select new ru.practicum.shareit.item.dto.ItemDto(it.id, it.name, it.description, it.available, " +
+            "it.request.id) " +
+            "from RequestSuggestion as s join Item as it on it.id = s.itemId " +
+            "where s.requestId = :requestId and it.available = true")
+    List<ItemDto> findAvailableItemsByRequestId(@Param("requestId") long requestId, Pageable pageable);
+
+    @Modifying
+    @Query("delete from RequestSuggestion as s where s.itemId = :itemId")
+    int deleteByItemId(@Param("itemId") long itemId);
+}
@@ -6,7 +6,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.service.BookingCounterUpdater;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.service.ItemDetailsCache;
+import ru.practicum.shareit.item.service.ItemSearchCache;
+import ru.practicum.shareit.item.storage.ItemNameIndex;
+import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.item.storage.ItemSearchEngine;
+import ru.practicum.shareit.request.service.ItemRequestFeedCache;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.dto.UserDtoMapper;
 import ru.practicum.shareit.user.dto.UserPatchDto;
@@ -25,11 +32,19 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final UserDtoMapper userDtoMapper;
     private final UserPatchDtoMapper userPatchDtoMapper;
+    private final BookingCounterUpdater bookingCounterUpdater;
+    private final ItemRepository itemRepository;
+    private final ItemSearchEngine itemSearchEngine;
+    private final ItemSearchCache itemSearchCache;
+    private final ItemNameIndex itemNameIndex;
+    private final ItemDetailsCache itemDetailsCache;
+    private final ItemRequestFeedCache itemRequestFeedCache;
 
     @Override
     @Transactional
     public UserDto add(UserDto dto) {
         User user = userRepository.save(userDtoMapper.fromDto(dto));
+        bookingCounterUpdater.createCounters(user.getId());
         log.debug("Add user {}", user);
         return userDtoMapper.toDto(user);
     }
@@ -50,6 +65,15 @@ public class UserServiceImpl implements UserService {
     @Transactional
     public void remove(long id) {
         try {
+            bookingCounterUpdater.onUserRemoved(id);
+            itemNameIndex.onRemoved(itemRepository.findAvailableNamesByOwnerId(id));
+            List<Long> itemIds = itemRepository.findIdsByOwnerId(id);
+            if (!itemIds.isEmpty()) {
+                itemSearchEngine.onRemoved(itemIds);
+                itemSearchCache.invalidateAllAfterCommit();
+                itemDetailsCache.invalidateAfterCommit(itemIds);
+                itemRequestFeedCache.invalidateAfterCommit();
+            }
             userRepository.deleteById(id);
         } catch (EmptyResultDataAccessException e) {
             log.warn(e.getMessage(), e);
@@ -0,0 +1,42 @@
+package ru.practicum.shareit.util.pagination;
+
+import lombok.Value;
+import ru.practicum.shareit.exception.CustomValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Позиция в выборке, отсортированной по (time, id): токен продолжения для keyset-пагинации
+@Value
+public class SeekCursor {
+    private static final String SEPARATOR = "|";
+
+    LocalDateTime time;
+
+    Long id;
+
+    public static SeekCursor of(LocalDateTime time, Long id) {
+        return new SeekCursor(time, id);
+    }
+
+    public static SeekCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIndex = decoded.lastIndexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new CustomValidationException("Invalid cursor: " + token);
+            }
+            return new SeekCursor(LocalDateTime.parse(decoded.substring(0, separatorIndex)),
+                    Long.parseLong(decoded.substring(separatorIndex + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException exception) {
+            throw new CustomValidationException("Invalid cursor: " + token);
+        }
+    }
+
+    public String encode() {
+        String raw = time + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.util.scheduling;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+// Момент времени, до которого фоновая задача уже обработала данные
+@Entity
+@Table(name = "job_watermarks")
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobWatermark {
+    @Id
+    private String name;
+
+    private LocalDateTime watermark;
+}
@@ -0,0 +1,17 @@
+package ru.practicum.shareit.util.scheduling;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+public interface JobWatermarkRepository extends JpaRepository<JobWatermark, String> {
+
+    // Блокировка строки не дает нескольким экземплярам сервиса обрабатывать одно окно одновременно
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "select w from JobWatermark as w where w.name = :name")
+    Optional<JobWatermark> findByNameForUpdate(@Param("name") String name);
+}
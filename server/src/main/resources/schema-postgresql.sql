@@ -0,0 +1,5 @@
+-- Выполняется после schema.sql только на PostgreSQL (spring.sql.init.platform=postgresql)
+
+-- items: полнотекстовый поиск PostgresItemSearchEngine, выражение совпадает с ItemRepository.SEARCH_VECTOR
+CREATE INDEX IF NOT EXISTS idx_items_search ON items USING gin (
+    (setweight(to_tsvector('simple', name), 'A') || setweight(to_tsvector('simple', description), 'B')));
@@ -1,4 +1,8 @@
-drop table if exists users, requests, items, bookings, comments;
+drop table if exists users, requests, items, bookings, bookings_archive, comments, booking_counters, job_watermarks,
+    booking_events, item_stats, request_suggestions;
+drop sequence if exists items_seq;
+drop sequence if exists bookings_seq;
+drop sequence if exists booking_events_seq;
 
 CREATE TABLE IF NOT EXISTS users (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
@@ -18,8 +22,11 @@ CREATE TABLE IF NOT EXISTS requests (
         FOREIGN KEY (requestor_id) REFERENCES users(id)
 );
 
+-- Идентификаторы вещей выдаются пулами по 50 (allocationSize в Item) для пакетных вставок при импорте
+CREATE SEQUENCE IF NOT EXISTS items_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS items (
-  id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+  id BIGINT NOT NULL,
   name VARCHAR(255) NOT NULL,
   description VARCHAR(512) NOT NULL,
   available BOOLEAN NOT NULL,
@@ -32,13 +39,17 @@ CREATE TABLE IF NOT EXISTS items (
       FOREIGN KEY (request_id) REFERENCES requests(id)
 );
 
+-- Идентификаторы бронирований выдаются пулами по 50 (allocationSize в Booking), что позволяет пакетные вставки
+CREATE SEQUENCE IF NOT EXISTS bookings_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS bookings (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    id BIGINT NOT NULL,
     start_time TIMESTAMP WITHOUT TIME ZONE,
     end_time TIMESTAMP WITHOUT TIME ZONE,
     item_id BIGINT,
     booker_id BIGINT,
     status VARCHAR(16),
+    created TIMESTAMP WITHOUT TIME ZONE,
     CONSTRAINT pk_booking PRIMARY KEY (id),
     CONSTRAINT fk_booking_item
         FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE,
@@ -47,6 +58,22 @@ CREATE TABLE IF NOT EXISTS bookings (
     CONSTRAINT booking_dates_sequence CHECK (end_time > start_time)
 );
 
+-- Архив закончившихся бронирований, те же столбцы, что у bookings. Заполняется BookingArchiver
+CREATE TABLE IF NOT EXISTS bookings_archive (
+    id BIGINT NOT NULL,
+    start_time TIMESTAMP WITHOUT TIME ZONE,
+    end_time TIMESTAMP WITHOUT TIME ZONE,
+    item_id BIGINT,
+    booker_id BIGINT,
+    status VARCHAR(16),
+    created TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT pk_booking_archive PRIMARY KEY (id),
+    CONSTRAINT fk_booking_archive_item
+        FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE,
+    CONSTRAINT fk_booking_archive_booker
+        FOREIGN KEY (booker_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
 CREATE TABLE IF NOT EXISTS comments (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
     text VARCHAR(255),
@@ -58,4 +85,114 @@ CREATE TABLE IF NOT EXISTS comments (
         FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE,
     CONSTRAINT fk_comment_author
         FOREIGN KEY (author_id) REFERENCES users(id) ON DELETE CASCADE
-);
\ No newline at end of file
+);
+
+-- Счетчики бронирований пользователя по состояниям, role: BOOKER или OWNER
+CREATE TABLE IF NOT EXISTS booking_counters (
+    user_id BIGINT NOT NULL,
+    role VARCHAR(16) NOT NULL,
+    all_count BIGINT NOT NULL DEFAULT 0,
+    current_count BIGINT NOT NULL DEFAULT 0,
+    past_count BIGINT NOT NULL DEFAULT 0,
+    future_count BIGINT NOT NULL DEFAULT 0,
+    waiting_count BIGINT NOT NULL DEFAULT 0,
+    rejected_count BIGINT NOT NULL DEFAULT 0,
+    expired_count BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT pk_booking_counters PRIMARY KEY (user_id, role),
+    CONSTRAINT fk_booking_counters_user
+        FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Статистика вещи для сортировки по популярности, обновляется вместе с комментариями и бронированиями
+CREATE TABLE IF NOT EXISTS item_stats (
+    item_id BIGINT NOT NULL,
+    comments_count BIGINT NOT NULL DEFAULT 0,
+    bookings_count BIGINT NOT NULL DEFAULT 0,
+    last_activity TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT pk_item_stats PRIMARY KEY (item_id),
+    CONSTRAINT fk_item_stats_item
+        FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE
+);
+
+-- Вещи, подобранные для открытых запросов по словам описания (ItemRequestMatcher)
+CREATE TABLE IF NOT EXISTS request_suggestions (
+    request_id BIGINT NOT NULL,
+    item_id BIGINT NOT NULL,
+    score DOUBLE PRECISION NOT NULL,
+    created TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_request_suggestions PRIMARY KEY (request_id, item_id),
+    CONSTRAINT fk_request_suggestions_request
+        FOREIGN KEY (request_id) REFERENCES requests(id) ON DELETE CASCADE,
+    CONSTRAINT fk_request_suggestions_item
+        FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE
+);
+
+-- Outbox событий бронирований, dispatched_at заполняет BookingEventDispatcher после доставки
+CREATE SEQUENCE IF NOT EXISTS booking_events_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS booking_events (
+    id BIGINT NOT NULL,
+    type VARCHAR(16) NOT NULL,
+    booking_id BIGINT NOT NULL,
+    item_id BIGINT NOT NULL,
+    booker_id BIGINT NOT NULL,
+    owner_id BIGINT NOT NULL,
+    start_time TIMESTAMP WITHOUT TIME ZONE,
+    end_time TIMESTAMP WITHOUT TIME ZONE,
+    status VARCHAR(16),
+    created TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    dispatched_at TIMESTAMP WITHOUT TIME ZONE,
+    dispatch_seq BIGINT,
+    CONSTRAINT pk_booking_events PRIMARY KEY (id)
+);
+
+-- Границы, до которых отработали фоновые задачи
+CREATE TABLE IF NOT EXISTS job_watermarks (
+    name VARCHAR(64) NOT NULL,
+    watermark TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_job_watermarks PRIMARY KEY (name)
+);
+
+-- users: findByEmail / findByEmailAndIdIsNot используют UQ_USER_EMAIL
+
+-- requests: страницы запросов пользователя и чужих запросов (sort created, id), в т.ч. от курсора
+CREATE INDEX IF NOT EXISTS idx_requests_requestor_created ON requests (requestor_id, created, id);
+CREATE INDEX IF NOT EXISTS idx_requests_created ON requests (created, id);
+
+-- items: findAllByOwner (sort id), join bookings -> items по owner_id, вещи запросов (request_id, id)
+CREATE INDEX IF NOT EXISTS idx_items_owner_id ON items (owner_id, id);
+CREATE INDEX IF NOT EXISTS idx_items_request ON items (request_id, id);
+
+-- bookings: списки бронирующего (sort start_time, id), в т.ч. по статусу
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_start ON bookings (booker_id, start_time, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_status_start ON bookings (booker_id, status, start_time, id);
+-- bookings: списки владельца через items.owner_id, last/next бронирования вещи
+CREATE INDEX IF NOT EXISTS idx_bookings_item_start ON bookings (item_id, start_time, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_item_status_start ON bookings (item_id, status, start_time);
+-- bookings: existsByItemAndBookerAndEndBefore (проверка права оставить отзыв), архивная часть объединения BookingRecord
+--   использует idx_bookings_archive_booker_item_end
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_item_end ON bookings (booker_id, item_id, end_time);
+
+-- comments: страницы и последние комментарии вещи (sort created, id)
+CREATE INDEX IF NOT EXISTS idx_comments_item_created ON comments (item_id, created, id);
+
+-- request_suggestions: пересоздание предложений вещи при изменении ее текста
+CREATE INDEX IF NOT EXISTS idx_request_suggestions_item ON request_suggestions (item_id);
+
+-- bookings: окна BookingCounterReconciler по start_time и end_time
+CREATE INDEX IF NOT EXISTS idx_bookings_start ON bookings (start_time);
+CREATE INDEX IF NOT EXISTS idx_bookings_end ON bookings (end_time);
+
+-- bookings: поиск WAITING бронирований с наступившим start для BookingExpirer
+CREATE INDEX IF NOT EXISTS idx_bookings_status_start ON bookings (status, start_time, id);
+
+-- bookings_archive: списки ALL/PAST бронирующего и владельца, последнее бронирование вещи, проверка права на отзыв
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_booker_start ON bookings_archive (booker_id, start_time, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_item_start ON bookings_archive (item_id, start_time, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_item_status_start ON bookings_archive (item_id, status, start_time);
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_booker_item_end ON bookings_archive (booker_id, item_id, end_time);
+
+-- booking_events: выборка неотправленных по id, удаление отправленных по dispatched_at
+CREATE INDEX IF NOT EXISTS idx_booking_events_dispatched_id ON booking_events (dispatched_at, id);
+-- booking_events: чтение отправленных по порядку отправки (потоки событий всех экземпляров, Last-Event-ID)
+CREATE UNIQUE INDEX IF NOT EXISTS idx_booking_events_dispatch_seq ON booking_events (dispatch_seq);
@@ -0,0 +1,115 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.shareit.booking.dto.BookingEventDto;
+import ru.practicum.shareit.booking.model.BookingEventType;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.service.BookingEventDispatcher;
+import ru.practicum.shareit.booking.service.InMemoryBookingEventSink;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+ * Доставка событий outbox получателям: добавление, подтверждение и отклонение бронирований записывают события,
+ * диспетчер передает их в получатели в порядке записи. Фоновая задача диспетчера может отправить часть событий
+ * раньше теста, поэтому события проверяются по буферу InMemoryBookingEventSink, а не по результату dispatchBatch.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class BookingEventOutboxTest {
+    private static final String USER_ID_HEADER = "X-Sharer-User-Id";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookingEventDispatcher bookingEventDispatcher;
+
+    @Autowired
+    private InMemoryBookingEventSink inMemoryBookingEventSink;
+
+    @Test
+    void addApproveAndRejectEventsReachSinks() throws Exception {
+        long ownerId = createUser("outbox-owner");
+        long bookerId = createUser("outbox-booker");
+        long itemId = create(post("/items"), ownerId,
+                Map.of("name", "Дрель", "description", "Дрель", "available", true));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        long approvedId = createBooking(bookerId, itemId, start);
+        long rejectedId = createBooking(bookerId, itemId, start.plusDays(1));
+        mockMvc.perform(patch("/bookings/{bookingId}", approvedId)
+                        .param("approved", "true")
+                        .header(USER_ID_HEADER, ownerId))
+                .andExpect(status().isOk());
+        mockMvc.perform(patch("/bookings/{bookingId}", rejectedId)
+                        .param("approved", "false")
+                        .header(USER_ID_HEADER, ownerId))
+                .andExpect(status().isOk());
+
+        int dispatched;
+        do {
+            dispatched = bookingEventDispatcher.dispatchBatch(100);
+        } while (dispatched > 0);
+        List<BookingEventDto> events = inMemoryBookingEventSink.drain().stream()
+                .filter(event -> event.getItemId() == itemId)
+                .collect(Collectors.toList());
+
+        assertThat(events)
+                .extracting(BookingEventDto::getBookingId, BookingEventDto::getType, BookingEventDto::getStatus)
+                .containsExactly(
+                        tuple(approvedId, BookingEventType.CREATED, BookingStatus.WAITING),
+                        tuple(rejectedId, BookingEventType.CREATED, BookingStatus.WAITING),
+                        tuple(approvedId, BookingEventType.APPROVED, BookingStatus.APPROVED),
+                        tuple(rejectedId, BookingEventType.REJECTED, BookingStatus.REJECTED));
+        assertThat(events).allSatisfy(event -> {
+            assertThat(event.getBookerId()).isEqualTo(bookerId);
+            assertThat(event.getOwnerId()).isEqualTo(ownerId);
+            assertThat(event.getDispatchSeq()).isNotNull();
+        });
+    }
+
+    private long createUser(String name) throws Exception {
+        return create(post("/users"), null, Map.of("name", name, "email", name + "@mail.com"));
+    }
+
+    private long createBooking(long userId, long itemId, LocalDateTime start) throws Exception {
+        return create(post("/bookings"), userId, Map.of("itemId", itemId, "start", start.toString(),
+                "end", start.plusHours(2).toString()));
+    }
+
+    private long create(MockHttpServletRequestBuilder request, Long userId, Map<String, Object> body)
+            throws Exception {
+        if (Objects.nonNull(userId)) {
+            request.header(USER_ID_HEADER, userId);
+        }
+        MvcResult result = mockMvc.perform(request
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode created = objectMapper.readTree(result.getResponse().getContentAsString());
+        return created.get("id").asLong();
+    }
+}
@@ -0,0 +1,104 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.shareit.booking.model.BookingEvent;
+import ru.practicum.shareit.booking.service.BookingEventDispatcher;
+import ru.practicum.shareit.booking.storage.BookingEventRepository;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+ * Возобновление потока событий по Last-Event-ID, когда пропущенных событий больше, чем читает одна пачка повтора:
+ * подписчик должен получить все пропущенные события по возрастанию номера, без пропусков и повторов.
+ */
+@SpringBootTest(properties = "shareit.booking-events.stream.replay-batch-size=3")
+@AutoConfigureMockMvc
+class BookingEventStreamTest {
+    private static final String USER_ID_HEADER = "X-Sharer-User-Id";
+    private static final int MISSED_EVENTS = 8;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookingEventDispatcher bookingEventDispatcher;
+
+    @Autowired
+    private BookingEventRepository bookingEventRepository;
+
+    @Test
+    void resumeReplaysEveryMissedEventInOrder() throws Exception {
+        long ownerId = createUser("stream-owner");
+        long bookerId = createUser("stream-booker");
+        long itemId = create(post("/items"), ownerId,
+                Map.of("name", "Дрель", "description", "Дрель", "available", true));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        for (int i = 0; i <= MISSED_EVENTS; i++) {
+            create(post("/bookings"), bookerId, Map.of("itemId", itemId,
+                    "start", start.plusDays(i).toString(), "end", start.plusDays(i).plusHours(2).toString()));
+        }
+        int dispatched;
+        do {
+            dispatched = bookingEventDispatcher.dispatchBatch(100);
+        } while (dispatched > 0);
+        List<Long> dispatchSeqs = bookingEventRepository.findDispatchedByUserIdAfter(bookerId, 0L,
+                        PageRequest.of(0, 100)).stream()
+                .map(BookingEvent::getDispatchSeq)
+                .collect(Collectors.toList());
+        assertThat(dispatchSeqs).hasSize(MISSED_EVENTS + 1);
+
+        MvcResult result = mockMvc.perform(get("/bookings/events")
+                        .header(USER_ID_HEADER, bookerId)
+                        .header("Last-Event-ID", dispatchSeqs.get(0)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        List<Long> streamedSeqs = Arrays.stream(result.getResponse().getContentAsString().split("\n"))
+                .filter(line -> line.startsWith("id:"))
+                .map(line -> Long.valueOf(line.substring("id:".length()).trim()))
+                .collect(Collectors.toList());
+        assertThat(streamedSeqs).containsExactlyElementsOf(dispatchSeqs.subList(1, dispatchSeqs.size()));
+    }
+
+    private long createUser(String name) throws Exception {
+        return create(post("/users"), null, Map.of("name", name, "email", name + "@mail.com"));
+    }
+
+    private long create(MockHttpServletRequestBuilder request, Long userId, Map<String, Object> body)
+            throws Exception {
+        if (Objects.nonNull(userId)) {
+            request.header(USER_ID_HEADER, userId);
+        }
+        MvcResult result = mockMvc.perform(request
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode created = objectMapper.readTree(result.getResponse().getContentAsString());
+        return created.get("id").asLong();
+    }
+}
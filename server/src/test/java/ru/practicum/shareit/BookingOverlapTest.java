@@ -0,0 +1,179 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+ * Проверка пересечения бронирований одной вещи. Одновременные пересекающиеся бронирования идут по очереди через
+ * блокировку строки вещи: одно проходит, второе получает 409. Интервал отклоненного бронирования сразу свободен.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class BookingOverlapTest {
+    private static final String USER_ID_HEADER = "X-Sharer-User-Id";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void concurrentOverlappingBookingsAcceptOnlyOne() throws Exception {
+        long ownerId = createUser("overlap-owner");
+        long itemId = createItem(ownerId);
+        List<Long> bookerIds = List.of(createUser("overlap-booker1"), createUser("overlap-booker2"));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        CountDownLatch ready = new CountDownLatch(bookerIds.size());
+        ExecutorService executor = Executors.newFixedThreadPool(bookerIds.size());
+        try {
+            List<Future<Integer>> statuses = executor.invokeAll(bookerIds.stream()
+                    .map(bookerId -> (Callable<Integer>) () -> {
+                        ready.countDown();
+                        ready.await(5, TimeUnit.SECONDS);
+                        return bookingStatus(bookerId, itemId, start, start.plusHours(2));
+                    })
+                    .collect(Collectors.toList()));
+            List<Integer> results = statuses.stream()
+                    .map(status -> {
+                        try {
+                            return status.get();
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    })
+                    .collect(Collectors.toList());
+            assertThat(results).containsExactlyInAnyOrder(HttpStatus.OK.value(), HttpStatus.CONFLICT.value());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Вещи пакета блокируются по возрастанию id, поэтому пакеты [A, B] и [B, A] не ждут друг друга
+    @Test
+    void concurrentBatchesWithReversedItemsDoNotDeadlock() throws Exception {
+        long ownerId = createUser("batch-owner");
+        List<Long> itemIds = List.of(createItem(ownerId), createItem(ownerId));
+        List<Long> bookerIds = List.of(createUser("batch-booker1"), createUser("batch-booker2"));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        CountDownLatch ready = new CountDownLatch(bookerIds.size());
+        ExecutorService executor = Executors.newFixedThreadPool(bookerIds.size());
+        try {
+            List<Callable<MvcResult>> batches = List.of(
+                    batch(ready, bookerIds.get(0), List.of(itemIds.get(0), itemIds.get(1)), start),
+                    batch(ready, bookerIds.get(1), List.of(itemIds.get(1), itemIds.get(0)), start.plusDays(1)));
+            for (Future<MvcResult> result : executor.invokeAll(batches)) {
+                MvcResult batchResult = result.get();
+                assertThat(batchResult.getResponse().getStatus()).isEqualTo(HttpStatus.OK.value());
+                JsonNode rows = objectMapper.readTree(batchResult.getResponse().getContentAsString());
+                assertThat(rows).hasSize(2);
+                rows.forEach(row -> assertThat(row.hasNonNull("booking")).as("row %s", row).isTrue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectedBookingFreesInterval() throws Exception {
+        long ownerId = createUser("reject-owner");
+        long itemId = createItem(ownerId);
+        long bookerId = createUser("reject-booker");
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        MvcResult created = mockMvc.perform(bookingRequest(bookerId, itemId, start, start.plusHours(2)))
+                .andExpect(status().isOk())
+                .andReturn();
+        long bookingId = objectMapper.readTree(created.getResponse().getContentAsString()).get("id").asLong();
+        assertThat(bookingStatus(createUser("reject-other"), itemId, start.plusHours(1), start.plusHours(3)))
+                .isEqualTo(HttpStatus.CONFLICT.value());
+
+        mockMvc.perform(patch("/bookings/{bookingId}", bookingId)
+                        .param("approved", "false")
+                        .header(USER_ID_HEADER, ownerId))
+                .andExpect(status().isOk());
+
+        assertThat(bookingStatus(createUser("reject-next"), itemId, start.plusHours(1), start.plusHours(3)))
+                .isEqualTo(HttpStatus.OK.value());
+    }
+
+    private Callable<MvcResult> batch(CountDownLatch ready, long bookerId, List<Long> itemIds,
+                                      LocalDateTime start) {
+        return () -> {
+            List<Map<String, Object>> bookings = itemIds.stream()
+                    .map(itemId -> Map.<String, Object>of("itemId", itemId, "start", start.toString(),
+                            "end", start.plusHours(2).toString()))
+                    .collect(Collectors.toList());
+            ready.countDown();
+            ready.await(5, TimeUnit.SECONDS);
+            return mockMvc.perform(post("/bookings/batch")
+                            .header(USER_ID_HEADER, bookerId)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(bookings)))
+                    .andReturn();
+        };
+    }
+
+    private int bookingStatus(long bookerId, long itemId, LocalDateTime start, LocalDateTime end) throws Exception {
+        return mockMvc.perform(bookingRequest(bookerId, itemId, start, end))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+    }
+
+    private MockHttpServletRequestBuilder bookingRequest(long bookerId, long itemId, LocalDateTime start,
+                                                         LocalDateTime end) throws Exception {
+        return post("/bookings")
+                .header(USER_ID_HEADER, bookerId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("itemId", itemId, "start", start.toString(),
+                        "end", end.toString())));
+    }
+
+    private long createUser(String name) throws Exception {
+        return create(post("/users"), null, Map.of("name", name, "email", name + "@mail.com"));
+    }
+
+    private long createItem(long ownerId) throws Exception {
+        return create(post("/items"), ownerId, Map.of("name", "Дрель", "description", "Дрель", "available", true));
+    }
+
+    private long create(MockHttpServletRequestBuilder request, Long userId, Map<String, Object> body)
+            throws Exception {
+        if (Objects.nonNull(userId)) {
+            request.header(USER_ID_HEADER, userId);
+        }
+        MvcResult result = mockMvc.perform(request
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode created = objectMapper.readTree(result.getResponse().getContentAsString());
+        return created.get("id").asLong();
+    }
+}
@@ -0,0 +1,224 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.storage.CommentRepository;
+import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.user.storage.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+ * Число SQL-запросов на один вызов эндпоинтов, которые показывают бронирования и комментарии со связанными
+ * вещами и пользователями. Данные охватывают несколько вещей, бронирующих и авторов: если связь снова начнет
+ * загружаться отдельно для каждой строки, число запросов вырастет вместе со страницей.
+ * Тест не транзакционный: общий с запросом контекст персистентности скрыл бы повторные загрузки.
+ */
+@SpringBootTest(properties = StatementRecorder.PROPERTY)
+@AutoConfigureMockMvc
+class QueryCountTest {
+    private static final String USER_ID_HEADER = "X-Sharer-User-Id";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final AtomicInteger USER_NUMBER = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    private long ownerId;
+    private long bookerId;
+    private long itemId;
+    private long otherItemId;
+    private long bookingId;
+    private final List<Long> bookingIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ownerId = createUser();
+        itemId = createItem(ownerId, "Дрель");
+        otherItemId = createItem(ownerId, "Пила");
+        bookerId = createUser();
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        for (int i = 0; i < 3; i++) {
+            bookingId = createBooking(bookerId, i % 2 == 0 ? itemId : otherItemId, start.plusDays(i));
+            bookingIds.add(bookingId);
+            bookingIds.add(createBooking(createUser(), otherItemId, start.plusDays(10 + i)));
+        }
+        for (int i = 0; i < 3; i++) {
+            Comment comment = new Comment();
+            comment.setText("Комментарий " + i);
+            comment.setItem(itemRepository.getReferenceById(itemId));
+            comment.setAuthor(userRepository.getReferenceById(createUser()));
+            comment.setCreated(LocalDateTime.now().minusMinutes(i));
+            commentRepository.save(comment);
+        }
+    }
+
+    @Test
+    void bookerListsLoadPageInOneQuery() throws Exception {
+        // Проверка пользователя, затем страница
+        for (String state : List.of("ALL", "FUTURE", "WAITING")) {
+            assertThat(statements(get("/bookings")
+                    .param("state", state)
+                    .param("size", "10")
+                    .header(USER_ID_HEADER, bookerId)))
+                    .as("booker state %s", state)
+                    .hasSize(2);
+        }
+    }
+
+    @Test
+    void ownerListsLoadPageInOneQuery() throws Exception {
+        // Проверка пользователя, затем страница
+        for (String state : List.of("ALL", "FUTURE", "WAITING")) {
+            assertThat(statements(get("/bookings/owner")
+                    .param("state", state)
+                    .param("size", "10")
+                    .header(USER_ID_HEADER, ownerId)))
+                    .as("owner state %s", state)
+                    .hasSize(2);
+        }
+    }
+
+    @Test
+    void cursorPagesLoadPageInOneQuery() throws Exception {
+        MvcResult firstPage = mockMvc.perform(get("/bookings/owner")
+                        .param("state", "ALL")
+                        .param("size", "2")
+                        .header(USER_ID_HEADER, ownerId))
+                .andExpect(status().isOk())
+                .andReturn();
+        String cursor = firstPage.getResponse().getHeader(NEXT_CURSOR_HEADER);
+        assertThat(cursor).isNotNull();
+        assertThat(statements(get("/bookings/owner")
+                .param("state", "ALL")
+                .param("size", "10")
+                .param("cursor", cursor)
+                .header(USER_ID_HEADER, ownerId)))
+                .hasSize(2);
+    }
+
+    @Test
+    void singleBookingLoadsItemAndBookerWithBooking() throws Exception {
+        assertThat(statements(get("/bookings/{bookingId}", bookingId)
+                .header(USER_ID_HEADER, ownerId)))
+                .hasSize(1);
+    }
+
+    @Test
+    void approvalReloadsBookingWithItemAndBooker() throws Exception {
+        // Условное обновление, загрузка бронирования, статистика вещи, счетчики бронирующего и владельца,
+        // вставка события. Выборку идентификатора события StatementRecorder не записывает
+        assertThat(statements(patch("/bookings/{bookingId}", bookingId)
+                .param("approved", "true")
+                .header(USER_ID_HEADER, ownerId)))
+                .hasSize(6);
+    }
+
+    // Запись статуса, статистики, счетчиков и события идет по каждому бронированию, а чтение - одним запросом
+    @Test
+    void batchApprovalLoadsBookingsInOneQuery() throws Exception {
+        assertThat(statements(patch("/bookings/batch")
+                .param("approved", "true")
+                .header(USER_ID_HEADER, ownerId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(bookingIds))))
+                .filteredOn(sql -> sql.startsWith("select"))
+                .hasSize(1);
+    }
+
+    // Сколько бы строк ни было в пачке, счетчики обновляются раз на пользователя и роль, статистика - раз на вещь
+    @Test
+    void batchCreationUpdatesCountersOncePerUserAndItem() throws Exception {
+        long newBookerId = createUser();
+        LocalDateTime start = LocalDateTime.now().plusDays(30);
+        List<Map<String, Object>> bookings = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            LocalDateTime bookingStart = start.plusDays(i);
+            bookings.add(Map.of("itemId", i % 2 == 0 ? itemId : otherItemId, "start", bookingStart.toString(),
+                    "end", bookingStart.plusHours(2).toString()));
+        }
+        // Счетчики бронирующего и владельца, статистика двух вещей
+        assertThat(statements(post("/bookings/batch")
+                .header(USER_ID_HEADER, newBookerId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(bookings))))
+                .filteredOn(sql -> sql.startsWith("update"))
+                .hasSize(4);
+    }
+
+    @Test
+    void commentsLoadAuthorsWithPage() throws Exception {
+        // Проверки пользователя и вещи, затем страница
+        assertThat(statements(get("/items/{itemId}/comments", itemId)
+                .param("size", "10")
+                .header(USER_ID_HEADER, ownerId)))
+                .hasSize(3);
+    }
+
+    private List<String> statements(MockHttpServletRequestBuilder request) throws Exception {
+        StatementRecorder.clear();
+        mockMvc.perform(request).andExpect(status().isOk());
+        return StatementRecorder.statements();
+    }
+
+    private long createUser() throws Exception {
+        int number = USER_NUMBER.incrementAndGet();
+        return create(post("/users"), null, Map.of("name", "user" + number, "email", "count" + number + "@mail.com"));
+    }
+
+    private long createItem(long userId, String name) throws Exception {
+        return create(post("/items"), userId, Map.of("name", name, "description", name, "available", true));
+    }
+
+    private long createBooking(long userId, long itemId, LocalDateTime start) throws Exception {
+        return create(post("/bookings"), userId, Map.of("itemId", itemId, "start", start.toString(),
+                "end", start.plusHours(2).toString()));
+    }
+
+    private long create(MockHttpServletRequestBuilder request, Long userId, Map<String, Object> body)
+            throws Exception {
+        if (Objects.nonNull(userId)) {
+            request.header(USER_ID_HEADER, userId);
+        }
+        MvcResult result = mockMvc.perform(request
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode created = objectMapper.readTree(result.getResponse().getContentAsString());
+        return created.get("id").asLong();
+    }
+}
@@ -0,0 +1,167 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.storage.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.storage.BookingEventRepository;
+import ru.practicum.shareit.booking.storage.BookingRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.CommentRepository;
+import ru.practicum.shareit.item.storage.ItemRepository;
+import ru.practicum.shareit.request.storage.ItemRequestRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.storage.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Планы H2 (профиль test) для запросов, которым нужны индексы из schema.sql. Проверяется SQL, который Hibernate
+ * действительно выполняет для метода репозитория: план не должен содержать полного обхода таблицы (tableScan).
+ * Если условию подходит и индекс внешнего ключа с тем же первым столбцом, H2 может выбрать любой из них,
+ * поэтому имя индекса проверяется только там, где условие обслуживает лишь составной индекс.
+ * Страницы только с сортировкой по индексу, без условия на его столбцы (чужие запросы по смещению), H2 читает
+ * обходом таблицы, а PostgreSQL - обратным обходом индекса, поэтому здесь они не проверяются.
+ */
+@SpringBootTest(properties = StatementRecorder.PROPERTY)
+@Transactional
+class QueryPlanTest {
+    private static final Sort START_DESC_SORT = Sort.by(Sort.Direction.DESC, "start", "id");
+    private static final Pageable BOOKINGS_PAGE = PageRequest.of(0, 10, START_DESC_SORT);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ArchivedBookingRepository archivedBookingRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private ItemRequestRepository itemRequestRepository;
+
+    @Autowired
+    private BookingEventRepository bookingEventRepository;
+
+    private User user;
+    private Item item;
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setName("user");
+        user.setEmail("plan@mail.com");
+        user = userRepository.save(user);
+        item = new Item();
+        item.setName("item");
+        item.setDescription("description");
+        item.setAvailable(true);
+        item.setOwner(user);
+        item = itemRepository.saveAndFlush(item);
+    }
+
+    @Test
+    void bookerBookingsUseBookerIndexes() {
+        assertPlan(() -> bookingRepository.findByBooker(user, BOOKINGS_PAGE));
+        assertPlan(() -> bookingRepository.findByBookerSeek(user, now, 1L, BOOKINGS_PAGE));
+        assertPlan(() -> bookingRepository.findByBookerAndStartIsAfter(user, now, BOOKINGS_PAGE));
+        assertPlan(() -> bookingRepository.findByBookerAndEndIsBefore(user, now, BOOKINGS_PAGE));
+        assertPlan(() -> bookingRepository.findByBookerAndStatusIs(user, BookingStatus.WAITING, BOOKINGS_PAGE));
+    }
+
+    @Test
+    void ownerBookingsUseOwnerAndItemIndexes() {
+        assertPlan(() -> bookingRepository.findByItemOwner(user, BOOKINGS_PAGE));
+        assertPlan(() -> bookingRepository.findByItemOwnerAndStatusIsSeek(user, BookingStatus.WAITING, now, 1L,
+                BOOKINGS_PAGE));
+    }
+
+    @Test
+    void lastAndNextBookingsUseItemStatusIndexes() {
+        assertPlan(() -> bookingRepository.findFirstByItemAndStartAfterAndStatusIs(item, now,
+                BookingStatus.APPROVED, Sort.by(Sort.Direction.ASC, "start")), "idx_bookings_item_status_start");
+        assertPlan(() -> archivedBookingRepository.findFirstByItemAndStartLessThanEqualAndStatusIs(item, now,
+                BookingStatus.APPROVED, Sort.by(Sort.Direction.DESC, "start")),
+                "idx_bookings_archive_item_status_start");
+    }
+
+    // Запрос идет по BookingRecord, то есть по объединению bookings и bookings_archive: обход таблицы запрещен
+    // в обеих частях, а наличие архивной части в плане проверяется явно
+    @Test
+    void commentPermissionUsesBookerItemIndexesOfBothTables() {
+        assertPlan(() -> bookingRepository.existsByItemAndBookerAndEndBefore(item, user, now), "bookings_archive");
+    }
+
+    @Test
+    void overlapCheckUsesItemIndexes() {
+        assertPlan(() -> bookingRepository.findOverlapping(item.getId(),
+                List.of(BookingStatus.WAITING, BookingStatus.APPROVED), now, now.plusDays(1), PageRequest.of(0, 1)));
+    }
+
+    @Test
+    void expiryUsesStatusStartIndex() {
+        assertPlan(() -> bookingRepository.findIdsByStatusAndStartBefore(BookingStatus.WAITING, now,
+                PageRequest.of(0, 10)), "idx_bookings_status_start");
+    }
+
+    @Test
+    void ownerItemsUseOwnerIndex() {
+        assertPlan(() -> itemRepository.findAllByOwner(user, PageRequest.of(0, 10, Sort.by("id"))));
+    }
+
+    @Test
+    void commentsUseItemCreatedIndex() {
+        assertPlan(() -> commentRepository.findByItemId(item.getId(),
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "created", "id"))));
+    }
+
+    @Test
+    void requestsUseRequestorAndCreatedIndexes() {
+        Sort sort = Sort.by(Sort.Direction.DESC, "created", "id");
+        assertPlan(() -> itemRequestRepository.findAllByRequestorId(user.getId(), PageRequest.of(0, 10, sort)));
+        assertPlan(() -> itemRequestRepository.findAllByRequestorIdNotSeek(user.getId(), now, 1L,
+                PageRequest.of(0, 10, sort)), "idx_requests_created");
+    }
+
+    @Test
+    void bookingEventsUseDispatchIndexes() {
+        assertPlan(() -> bookingEventRepository.findUndispatched(PageRequest.of(0, 10)),
+                "idx_booking_events_dispatched_id");
+        assertPlan(() -> bookingEventRepository.findDispatchedAfter(0L, PageRequest.of(0, 10)),
+                "idx_booking_events_dispatch_seq");
+    }
+
+    private void assertPlan(Runnable query, String... planFragments) {
+        StatementRecorder.clear();
+        query.run();
+        List<String> statements = StatementRecorder.statements();
+        assertThat(statements).isNotEmpty();
+        String statement = statements.get(statements.size() - 1);
+        String plan = jdbcTemplate.queryForObject("explain " + statement, String.class);
+        assertThat(plan).as("plan of %s", statement).doesNotContainIgnoringCase("tableScan");
+        for (String fragment : planFragments) {
+            assertThat(plan).as("plan of %s", statement).containsIgnoringCase(fragment);
+        }
+    }
+}
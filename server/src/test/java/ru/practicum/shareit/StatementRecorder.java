@@ -0,0 +1,40 @@
+package ru.practicum.shareit;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/*
+ * Запоминает SQL, который Hibernate готовит в текущем потоке. Подключается свойством
+ * spring.jpa.properties.hibernate.session_factory.statement_inspector. Запросы фоновых задач выполняются
+ * в потоках планировщика и в список теста не попадают. Выборки следующего значения последовательности
+ * не записываются: идентификаторы выдаются пулами, и такой запрос появляется только когда пул кончился, то есть
+ * зависит от того, сколько идентификаторов уже израсходовали предыдущие тесты.
+ */
+public class StatementRecorder implements StatementInspector {
+    public static final String PROPERTY = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+            + "ru.practicum.shareit.StatementRecorder";
+
+    private static final Pattern SEQUENCE_NEXT_VALUE = Pattern.compile(
+            "^\\s*(call next value for|select nextval)\\b.*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    public static void clear() {
+        STATEMENTS.get().clear();
+    }
+
+    public static List<String> statements() {
+        return List.copyOf(STATEMENTS.get());
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (!SEQUENCE_NEXT_VALUE.matcher(sql).matches()) {
+            STATEMENTS.get().add(sql);
+        }
+        return sql;
+    }
+}